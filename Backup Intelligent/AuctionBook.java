@@ -0,0 +1,147 @@
+package IntelligentProject;
+
+import jade.lang.acl.ACLMessage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contract-Net auctions run by the BrokerAgent
+ * - One auction per buyer request: the broker sends a CFP to every dealer
+ *   listing the car type and collects their PROPOSE bids until the deadline
+ * - An auction closes when every invited dealer has answered or its deadline
+ *   passes; the closed auction is handed back exactly once for the award
+ * - Bids above the buyer's budget are kept as losers, never as the winner
+ * - Thread-safe (methods synchronize on the book)
+ */
+public class AuctionBook {
+
+    /**
+     * One open call for proposals
+     */
+    public static final class Auction {
+        public final String id;				// Conversation-id of the CFPs
+        public final ACLMessage request;	// Buyer's REQUEST (answered with the award)
+        public final String carType;
+        public final int budget;			// Highest price the buyer pays
+        public final long deadline;			// Close time in milliseconds
+        private final int invited;
+        private int answered = 0;
+        private final List<String> bidders = new ArrayList<>();	// Dealers that proposed
+        private String bestDealer;			// Lowest bid within budget (null if none)
+        private int bestPrice = Integer.MAX_VALUE;
+
+        Auction(String id, ACLMessage request, String carType, int budget, int invited, long deadline) {
+            this.id = id;
+            this.request = request;
+            this.carType = carType;
+            this.budget = budget;
+            this.invited = invited;
+            this.deadline = deadline;
+        }
+
+        /** @return Dealer with the lowest bid within budget, or null */
+        public String bestDealer() {
+            return bestDealer;
+        }
+
+        /** @return Winning bid (meaningful only if bestDealer() is set) */
+        public int bestPrice() {
+            return bestPrice;
+        }
+
+        /** @return Dealers that proposed, in arrival order */
+        public List<String> bidders() {
+            return bidders;
+        }
+
+        /** @return Dealers that got the CFP */
+        public int invited() {
+            return invited;
+        }
+    }
+
+    private final Map<String, Auction> open = new LinkedHashMap<>();	// Auction ID -> auction
+    private long opened = 0;
+    private long awarded = 0;
+
+    /**
+     * Opens an auction
+     * @param id Conversation-id used for the CFPs
+     * @param request Buyer's REQUEST
+     * @param carType Requested car type
+     * @param budget Buyer's maximum price
+     * @param invited Number of dealers sent a CFP
+     * @param deadline Close time in milliseconds
+     */
+    public synchronized void open(String id, ACLMessage request, String carType, int budget, int invited, long deadline) {
+        open.put(id, new Auction(id, request, carType, budget, invited, deadline));
+        opened++;
+    }
+
+    /**
+     * Records a dealer's answer to a CFP
+     * @param id Auction ID (conversation-id of the answer)
+     * @param dealer Answering dealer
+     * @param price Bid, or -1 if the dealer declined
+     * @return The auction if this was the last answer (now closed), else null
+     */
+    public synchronized Auction answer(String id, String dealer, int price) {
+        Auction auction = id == null ? null : open.get(id);
+        if (auction == null) {
+            return null;	// Late answer to a closed auction
+        }
+        auction.answered++;
+        if (price >= 0) {
+            auction.bidders.add(dealer);
+            if (price <= auction.budget && price < auction.bestPrice) {
+                auction.bestDealer = dealer;
+                auction.bestPrice = price;
+            }
+        }
+        if (auction.answered < auction.invited) {
+            return null;
+        }
+        return close(auction);
+    }
+
+    /**
+     * Closes every auction whose deadline has passed
+     * @param now Current time in milliseconds
+     * @return Closed auctions (empty if none)
+     */
+    public synchronized List<Auction> closeExpired(long now) {
+        List<Auction> expired = new ArrayList<>();
+        for (Iterator<Auction> it = open.values().iterator(); it.hasNext(); ) {
+            Auction auction = it.next();
+            if (auction.deadline <= now) {
+                it.remove();
+                if (auction.bestDealer != null) awarded++;
+                expired.add(auction);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return Number of auctions still collecting bids
+     */
+    public synchronized int size() {
+        return open.size();
+    }
+
+    /**
+     * @return Summary for logs
+     */
+    public synchronized String stats() {
+        return opened + " opened, " + awarded + " awarded, " + open.size() + " open";
+    }
+
+    private Auction close(Auction auction) {
+        open.remove(auction.id);
+        if (auction.bestDealer != null) awarded++;
+        return auction;
+    }
+}
@@ -0,0 +1,103 @@
+package IntelligentProject;
+
+import java.util.Arrays;
+
+/**
+ * Per-car-type cache of the cheapest listing for BrokerAgent
+ * - Filled lazily from the ListingIndex on the first request for a type
+ * - Cheaper registrations update the cached offer in place
+ * - Removing the cached dealer invalidates that car type only
+ * - Stock sales that leave a listing in place do not touch the cache
+ *   (the cached stock count may lag; dealer and price stay exact)
+ * - Counts hits and misses for tuning
+ * - Thread-safe (methods synchronize on the cache, then on the index on a miss)
+ */
+public class BestOfferCache {
+    private ListingIndex.Listing[] best = new ListingIndex.Listing[8];	// null = no dealer
+    private boolean[] valid = new boolean[8];
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Returns the cheapest listing for a car type
+     * @param carTypeId Car type symbol ID
+     * @param index Listing index consulted on a miss
+     * @return Cheapest listing or null if none registered
+     */
+    public synchronized ListingIndex.Listing get(int carTypeId, ListingIndex index) {
+        if (carTypeId < 0) {
+            return null;
+        }
+        ensureCapacity(carTypeId);
+        if (valid[carTypeId]) {
+            hits++;
+            return best[carTypeId];
+        }
+        misses++;
+        best[carTypeId] = index.cheapest(carTypeId);
+        valid[carTypeId] = true;
+        return best[carTypeId];
+    }
+
+    /**
+     * Applies a newly registered listing
+     * - Becomes the cached offer if cheaper than the current one
+     * @param listing Listing just stored in the index
+     */
+    public synchronized void listingAdded(ListingIndex.Listing listing) {
+        int carTypeId = listing.carTypeId;
+        ensureCapacity(carTypeId);
+        if (valid[carTypeId] && (best[carTypeId] == null || listing.price < best[carTypeId].price)) {
+            best[carTypeId] = listing;
+        }
+    }
+
+    /**
+     * Applies a listing removed from the index
+     * - Only invalidates the type if the removed listing was the cached offer
+     * @param listing Listing just removed (or replaced)
+     */
+    public synchronized void listingRemoved(ListingIndex.Listing listing) {
+        int carTypeId = listing.carTypeId;
+        if (carTypeId < valid.length && valid[carTypeId]
+                && best[carTypeId] != null && best[carTypeId].dealer.equals(listing.dealer)) {
+            invalidate(carTypeId);
+        }
+    }
+
+    /**
+     * Drops the cached offer for a car type
+     * @param carTypeId Car type whose listings changed
+     */
+    public synchronized void invalidate(int carTypeId) {
+        if (carTypeId >= 0 && carTypeId < valid.length) {
+            valid[carTypeId] = false;
+            best[carTypeId] = null;
+        }
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return Summary line for logging
+     */
+    public synchronized String stats() {
+        long total = hits + misses;
+        return "hits=" + hits + ", misses=" + misses
+            + (total == 0 ? "" : String.format(", hit rate=%.1f%%", 100.0 * hits / total));
+    }
+
+    private void ensureCapacity(int carTypeId) {
+        if (carTypeId >= valid.length) {
+            int capacity = Math.max(carTypeId + 1, valid.length * 2);
+            best = Arrays.copyOf(best, capacity);
+            valid = Arrays.copyOf(valid, capacity);
+        }
+    }
+}
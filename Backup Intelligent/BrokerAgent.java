@@ -2,92 +2,448 @@ package IntelligentProject;
 
 import jade.core.Agent;
 import jade.core.AID;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class BrokerAgent extends Agent {
-	// Data storage for dealer car listings (DealerName -> "CarType,Price")
-    private Map<String, String> carListings = new HashMap<>();
+	// Dealer inventories (car type, price, stock) grouped by car type and ordered by price
+    private final ListingIndex listings = new ListingIndex();
+    // Car type dictionary: names normalized once, matched by int ID
+    private final SymbolTable carTypes = SymbolTable.forCarTypes();
+    // Cheapest listing per car type, kept in step with the listing index
+    private final BestOfferCache offerCache = new BestOfferCache();
+    // Soft leases on dealers already handed to a buyer ("reservationTtlMs=N")
+    private final DealerReservations reservations = new DealerReservations(20000);
+    private static final int RESERVATION_SCAN_PAGE = 16;	// Listings fetched per step when skipping leases
+    // Reply parameter carrying ListingIndex.version() when the reply was built
+    public static final String LISTING_VERSION = "listing-version";
+    // Buyer REQUEST parameter: number of dealers wanted (absent = 1, the cheapest)
+    public static final String DEALER_COUNT = "dealer-count";
+    private static final int MAX_DEALER_COUNT = 10;	// Most dealers handed to one buyer
+    private final AtomicLong staleDeltas = new AtomicLong();	// Listing deltas refused as out of order
+    // Buyers' standing (car type, max price) feeds
+    private final ListingSubscriptions subscriptions = new ListingSubscriptions();
+    private static final int SNAPSHOT_LIMIT = 1000;	// Listings in a new subscriber's first update
+    // Contract-Net auctions ("auctionDeadlineMs=N"): buyer REQUEST parameter carrying the budget
+    public static final String AUCTION_BUDGET = "auction-budget";
+    private final AuctionBook auctions = new AuctionBook();
+    private final AtomicLong auctionSequence = new AtomicLong();
+    private long auctionDeadlineMs = 2000;	// How long dealers get to bid
+    private static final long AUCTION_TICK_MS = 100;	// Deadline check period
+    // Parameter carrying the deal ID (DealLedger.newId()) on offers and DEAL_CONFIRMED
+    public static final String DEAL_ID = "deal-id";
+    private final DealLedger ledger = new DealLedger();	// Booked deals, one per deal ID
+    // Deal journal ("journal=PATH|off", "journalGroup=N", "journalSyncMs=N"), replayed on startup
+    private DealJournal journal;
+    private String journalPath;				// Default: <broker name>-deals.journal
+    private int journalGroup = 64;			// Appends per forced write
+    private long journalSyncMs = 100;		// Longest an append waits for its forced write
     
-    // Commission tracking fields
+    // Commission tracking fields (guarded by commissionLock)
+    private final Object commissionLock = new Object();
     private int totalCommission = 0;
     private int automatedCommission = 0;	// Automated commission
     private int manualCommission = 0;		// Manual commission
     
+    // Totals reported by the other shards (primary shard only)
+    private int shardAutomatedCommission = 0;
+    private int shardManualCommission = 0;
+    
+    // Batch settings (agent arguments "batchSize=N", "maxBatchLatencyMs=N")
+    // With workers only batchSize applies (messages handed out per activation)
+    private int batchSize = 1;				// Messages drained per activation (1 = no batching)
+    private long maxBatchLatencyMs = 20;	// Longest a drained message waits for its reply
+    private boolean batching = false;		// True while replies are being held for a batch
+    private final List<ACLMessage> pendingReplies = new ArrayList<>();
+    private long batchCount = 0;
+    private long batchedMessages = 0;
+    
+    // Worker pool settings (agent argument "workers=N", 0 = handle on the agent thread)
+    private int workerCount = 0;
+    private static final int WORKER_QUEUE_CAPACITY = 256;	// Pending messages per worker lane
+    private BrokerWorkerPool workers;
+    private final Queue<ACLMessage> outbox = new ConcurrentLinkedQueue<>();	// Worker replies awaiting send
+    private static final Object WAKE_UP = new Object();	// O2A object waking the agent for the outbox
+    private final AtomicBoolean wakeUpPosted = new AtomicBoolean();	// One WAKE_UP in the O2A queue at a time
+    private MessageProcessor processor;
+    // Striped locks per car type ID: one car type's read-pick-reserve steps stay atomic
+    private final ReentrantLock[] typeLocks = new ReentrantLock[16];
+    
+    // Message kind -> handler (see MessageKind)
+    private final MessageHandlerRegistry handlers = new MessageHandlerRegistry()
+        .register(MessageKind.LISTING, this::handleDealerListing)
+        .register(MessageKind.LISTING_DELTA, this::handleListingDelta)
+        .register(MessageKind.SUBSCRIPTION, this::handleSubscription)
+        .register(MessageKind.BUYER_REQUEST, this::handleBuyerRequest)
+        .register(MessageKind.DEALER_QUERY, this::handleManualQuery)
+        .register(MessageKind.DEAL_CONFIRMED, this::handleDealConfirmation)
+        .register(MessageKind.DEAL_REJECTED, this::handleDealRejection)
+        .register(MessageKind.NEGOTIATION_FAILED, this::handleNegotiationFailure)
+        .register(MessageKind.COMMISSION_REPORT, this::handleCommissionReport)
+        .register(MessageKind.AUCTION, this::handleAuctionBid);
+    
     // Agent initialization
     protected void setup() {
-        GUI.logMessage(getLocalName(), "🟦 Broker started - Ready for registrations");
+        applyArguments(getArguments());
+        for (int i = 0; i < typeLocks.length; i++) {
+            typeLocks[i] = new ReentrantLock();
+        }
+        if (workerCount > 0) {
+            workers = new BrokerWorkerPool(getLocalName(), workerCount, WORKER_QUEUE_CAPACITY);
+            setEnabledO2ACommunication(true, 0);	// Workers wake the agent thread with WAKE_UP
+        }
+        openJournal();
+        GUI.logMessage(getLocalName(), "🟦 Broker started - Ready for registrations" +
+            (workers != null ? " (" + workers.size() + " workers, " + batchSize + " per activation" +
+                (batchSize > 1 ? ", maxBatchLatencyMs not used" : "") + ")"
+                : batchSize > 1 ? " (batch " + batchSize + ", max " + maxBatchLatencyMs + "ms)" : "") +
+            (BrokerRouter.getShardCount() > 1 ? " (shard of " + BrokerRouter.getShardCount() + ")" : ""));
         
-        addBehaviour(new jade.core.behaviours.CyclicBehaviour(this) {
-            public void action() {
-            	MessageTemplate mt = MessageTemplate.or(
-            		    MessageTemplate.or(
-            		        MessageTemplate.MatchPerformative(ACLMessage.INFORM),
-            		        MessageTemplate.MatchPerformative(ACLMessage.REQUEST)
-            		    ),
-            		    MessageTemplate.or(
-            		        MessageTemplate.or(
-            		            MessageTemplate.MatchPerformative(ACLMessage.QUERY_IF),
-            		            MessageTemplate.MatchPerformative(ACLMessage.CONFIRM)
-            		        ),
-            		        MessageTemplate.MatchPerformative(ACLMessage.FAILURE)
-            		    )
-            		);
-                
-                ACLMessage msg = receive(mt);
-                if (msg != null) {
-                    switch (msg.getPerformative()) {
-                        case ACLMessage.INFORM:
-                        	if (msg.getContent().startsWith("DEAL_CONFIRMED")) {
-                                handleDealConfirmation(msg);
-                            } else if (msg.getContent().startsWith("DEAL_REJECTED")) {
-                                handleDealRejection(msg);
-                            } else {
-                                handleDealerListing(msg);
-                            }
-                            break;
-                        case ACLMessage.REQUEST:
-                            handleBuyerRequest(msg);
-                            break;
-                        case ACLMessage.QUERY_IF:
-                            handleManualQuery(msg);
-                            break;
-                        case ACLMessage.CONFIRM:
-                            // Reserved for future extensions
-                            break;
-                        case ACLMessage.FAILURE: // ADDED INSIDE SWITCH BLOCK
-                            handleNegotiationFailure(msg);
-                            break;
-                    }
-                } else {
-                    block();
+        processor = new MessageProcessor();
+        addBehaviour(processor);
+        if (ledger.size() > 0) {
+            publishCommission(automatedCommission, manualCommission);	// Replayed totals
+        }
+        
+        // Group commit: force journal appends still pending
+        if (journal != null) {
+            addBehaviour(new TickerBehaviour(this, journalSyncMs) {
+                protected void onTick() {
+                    journal.sync();
+                }
+            });
+        }
+        
+        // Drop expired dealer leases
+        addBehaviour(new TickerBehaviour(this, reservations.getTtl()) {
+            protected void onTick() {
+                reservations.purgeExpired(System.currentTimeMillis());
+            }
+        });
+        
+        // Award auctions whose bidding deadline has passed
+        addBehaviour(new TickerBehaviour(this, AUCTION_TICK_MS) {
+            protected void onTick() {
+                for (AuctionBook.Auction auction : auctions.closeExpired(System.currentTimeMillis())) {
+                    awardAuction(auction);
                 }
             }
         });
     }
+
+    /**
+     * Reads optional "key=value" agent arguments
+     * @param args Agent arguments (may be null)
+     */
+    private void applyArguments(Object[] args) {
+        if (args == null) return;
+        for (Object arg : args) {
+            String[] pair = String.valueOf(arg).split("=", 2);
+            if (pair.length != 2) continue;
+            try {
+                switch (pair[0].trim()) {
+                    case "batchSize":
+                        batchSize = Math.max(1, Integer.parseInt(pair[1].trim()));
+                        break;
+                    case "maxBatchLatencyMs":
+                        maxBatchLatencyMs = Math.max(0, Long.parseLong(pair[1].trim()));
+                        break;
+                    case "reservationTtlMs":
+                        reservations.setTtl(Math.max(1, Long.parseLong(pair[1].trim())));
+                        break;
+                    case "auctionDeadlineMs":
+                        auctionDeadlineMs = Math.max(1, Long.parseLong(pair[1].trim()));
+                        break;
+                    case "workers":
+                        workerCount = Math.max(0, Integer.parseInt(pair[1].trim()));
+                        break;
+                    case "journal":
+                        journalPath = pair[1].trim();
+                        break;
+                    case "journalGroup":
+                        journalGroup = Math.max(1, Integer.parseInt(pair[1].trim()));
+                        break;
+                    case "journalSyncMs":
+                        journalSyncMs = Math.max(1, Long.parseLong(pair[1].trim()));
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                GUI.logMessage(getLocalName(), "⚠️ Ignoring invalid argument: " + arg);
+            }
+        }
+    }
+
+    /**
+     * Replays the deal journal into the ledger and commission totals, then opens it for appends
+     * - "journal=off" runs without a journal; a journal that cannot be read is
+     *   left untouched and the broker starts without one
+     */
+    private void openJournal() {
+        if ("off".equalsIgnoreCase(journalPath)) return;
+        Path path = Paths.get(journalPath != null ? journalPath : getLocalName() + "-deals.journal");
+        try {
+            long start = System.nanoTime();
+            // Deal IDs are unique across runs, so replayed IDs keep catching late duplicates
+            journal = new DealJournal(path, journalGroup, reader -> {
+                if (!ledger.record(reader.fingerprint(), reader.buyer(), reader.dealer(), reader.carType(),
+                        reader.price(), reader.commission(), reader.manual(), reader.time())) {
+                    return;
+                }
+                synchronized (commissionLock) {
+                    totalCommission += reader.commission();
+                    if (reader.manual()) {
+                        manualCommission += reader.commission();
+                    } else {
+                        automatedCommission += reader.commission();
+                    }
+                }
+            });
+            GUI.logMessage(getLocalName(), "📒 Deal journal " + path + ": " + ledger.size() +
+                " deals replayed (RM" + totalCommission + ") in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        } catch (IOException e) {
+            journal = null;
+            GUI.logMessage(getLocalName(), "⚠️ Deal journal disabled (" + path + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Main broker behaviour
+     * - Takes every message from the mailbox and dispatches it by kind
+     * - Without batching: handles one message per activation
+     * - With batching: drains up to batchSize messages (bounded by maxBatchLatencyMs),
+     *   applies listing/deal updates in arrival order, then answers queries and
+     *   buyer requests grouped by car type, and sends all replies together
+     * - With workers: drains up to batchSize messages and hands each to the
+     *   worker lane of its sender; this thread only receives and sends the
+     *   replies the workers leave in the outbox. Replies are not held for a
+     *   batch, so maxBatchLatencyMs has no effect
+     * - Workers never touch this behaviour: they wake the agent by posting
+     *   WAKE_UP to its O2A queue, which JADE accepts from any thread
+     */
+    private class MessageProcessor extends CyclicBehaviour {
+
+        MessageProcessor() {
+            super(BrokerAgent.this);
+        }
+
+        public void action() {
+            flushOutbox();
+            ACLMessage msg = receive();
+            if (msg == null) {
+                block();
+                if (!outbox.isEmpty()) {
+                    restart();	// A worker replied between the flush and block()
+                }
+                return;
+            }
+            if (workers != null) {
+                int drained = 0;
+                do {
+                    submit(msg);
+                } while (++drained < batchSize && (msg = receive()) != null);
+                return;
+            }
+            if (batchSize <= 1) {
+                dispatch(msg, MessageKind.of(msg));
+                return;
+            }
+            processBatch(msg);
+        }
+
+        private void processBatch(ACLMessage first) {
+            long deadline = System.nanoTime() + maxBatchLatencyMs * 1_000_000L;
+            List<ACLMessage> queries = new ArrayList<>();
+            List<ACLMessage> requests = new ArrayList<>();
+            int drained = 0;
+            batching = true;
+            try {
+                ACLMessage msg = first;
+                do {
+                    drained++;
+                    String kind = MessageKind.of(msg);
+                    if (MessageKind.BUYER_REQUEST.equals(kind)) {
+                        requests.add(msg);
+                    } else if (MessageKind.DEALER_QUERY.equals(kind)) {
+                        queries.add(msg);
+                    } else {
+                        dispatch(msg, kind);	// Listing and deal updates keep arrival order
+                    }
+                } while (drained < batchSize && System.nanoTime() < deadline
+                        && (msg = receive()) != null);
+
+                for (ACLMessage query : queries) {
+                    dispatch(query, MessageKind.DEALER_QUERY);
+                }
+                long start = System.nanoTime();
+                handleBuyerRequests(requests);
+                handlers.record(MessageKind.BUYER_REQUEST, requests.size(), System.nanoTime() - start);
+            } finally {
+                batching = false;
+                batchCount++;
+                batchedMessages += drained;
+                for (ACLMessage reply : pendingReplies) {
+                    send(reply);
+                }
+                pendingReplies.clear();
+            }
+        }
+
+        private void submit(final ACLMessage msg) {
+            final String kind = MessageKind.of(msg);
+            workers.submit(msg.getSender().getName(), () -> {
+                try {
+                    dispatch(msg, kind);
+                } catch (Exception e) {
+                    GUI.logMessage(getLocalName(), "⚠️ Worker error (" + kind + "): " + e.getMessage());
+                }
+            });
+        }
+
+        private void flushOutbox() {
+            if (workers == null) return;
+            wakeUpPosted.set(false);	// Before polling: later replies post a new WAKE_UP
+            while (getO2AObject() != null) {
+                // Only WAKE_UP objects are posted
+            }
+            ACLMessage reply;
+            while ((reply = outbox.poll()) != null) {
+                send(reply);
+            }
+        }
+
+        private void dispatch(ACLMessage msg, String kind) {
+            // Counted per kind by the registry; nothing sends the broker a CONFIRM, so those
+            // are logged like any other stray message (a mistagged deal confirmation shows up here)
+            if (!handlers.dispatch(kind, msg)) {
+                GUI.logMessage(getLocalName(), "⚠️ Ignored " +
+                    ACLMessage.getPerformative(msg.getPerformative()) + " (" + kind + ") from " +
+                    msg.getSender().getLocalName());
+            }
+        }
+    }
+
+    /**
+     * Sends a message, or holds it until the current batch completes
+     * - On a worker thread: queues it for the agent thread and wakes it through O2A
+     * @param msg Outgoing message
+     */
+    private void deliver(ACLMessage msg) {
+        if (BrokerWorkerPool.onWorkerThread()) {
+            outbox.add(msg);
+            if (wakeUpPosted.compareAndSet(false, true)) {
+                try {
+                    putO2AObject(WAKE_UP, false);
+                } catch (InterruptedException e) {
+                    wakeUpPosted.set(false);
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } else if (batching) {
+            pendingReplies.add(msg);
+        } else {
+            send(msg);
+        }
+    }
+
+    /**
+     * Logs broker statistics before termination
+     */
+    @Override
+    protected void takeDown() {
+        if (workers != null) {
+            workers.shutdown();
+            ACLMessage reply;
+            while ((reply = outbox.poll()) != null) {
+                send(reply);
+            }
+        }
+        GUI.logMessage(getLocalName(), "📊 Best-offer cache: " + offerCache.stats());
+        GUI.logMessage(getLocalName(), "📊 Listing version: " + listings.version() +
+            ", stale updates refused: " + staleDeltas.get() +
+            ", subscriptions: " + subscriptions.size());
+        GUI.logMessage(getLocalName(), "📊 Auctions: " + auctions.stats());
+        GUI.logMessage(getLocalName(), "📊 Ledger: " + ledger.stats());
+        if (journal != null) {
+            try {
+                journal.close();
+                GUI.logMessage(getLocalName(), "📊 Journal: " + journal.stats());
+            } catch (IOException e) {
+                GUI.logMessage(getLocalName(), "⚠️ Journal close error: " + e.getMessage());
+            }
+        }
+        GUI.logMessage(getLocalName(), "📊 Deals:\n" + DealMetrics.summary());
+        GUI.logMessage(getLocalName(), "📊 Handlers:\n" + handlers.stats());
+        if (batchCount > 0) {
+            GUI.logMessage(getLocalName(), String.format("📊 Batches: %d, avg %.1f messages",
+                batchCount, (double) batchedMessages / batchCount));
+        }
+        super.takeDown();
+    }
     
+    /**
+     * @param carTypeId Car type symbol ID (UNKNOWN allowed)
+     * @return Lock stripe guarding the car type
+     */
+    private ReentrantLock typeLock(int carTypeId) {
+        return typeLocks[carTypeId & (typeLocks.length - 1)];
+    }
+
     /**
      * Handles dealer registration messages
-     * @param msg INFORM message containing "CarType,Price"
-     * - Stores dealer offering in carListings
+     * @param msg INFORM with a bulk INVENTORY (car type, price, stock per entry)
+     *            or a single LISTING (binary or "CarType,Price", one unit in stock)
+     * - Replaces the dealer's inventory on this broker: listed types are stored
+     *   or updated, types missing from the message are withdrawn
+     * - Restarts the dealer's delta sequence numbering
      * - Logs registration in GUI
      */
     private void handleDealerListing(ACLMessage msg) {
         try {
-            String content = msg.getContent();
-            String[] parts = content.split(",");
-            
-            if (parts.length == 2) {
-                carListings.put(msg.getSender().getLocalName(), content);
+            MessageCodec.Reader inventory = MessageCodec.reader();
+            boolean bulk = inventory.read(msg, MessageCodec.INVENTORY);
+            if (!bulk && !inventory.read(msg, MessageCodec.LISTING)) {
+                GUI.logMessage(getLocalName(), "Invalid listing: " + MessageCodec.describe(msg));
+                return;
+            }
+            String dealer = msg.getSender().getLocalName();
+            listings.resetSequence(dealer);	// Deltas after a registration number from 1
+            int width = bulk ? 3 : 2;
+            Set<Integer> listed = new HashSet<>();
+            for (int e = 0; e < inventory.entries(); e++) {
+                String carType = inventory.string(e * width);
+                int carTypeId = carTypes.intern(carType);
+                int price = inventory.integer(e * width + 1);
+                int stock = bulk ? inventory.integer(e * width + 2) : 1;
+                listed.add(carTypeId);
+                storeListing(dealer, carTypeId, price, stock);
                 GUI.logMessage(getLocalName(), 
-                    "📥 Registered " + parts[0] + " from " + msg.getSender().getLocalName() + 
-                    " @ $" + parts[1]);
+                    "📥 Registered " + carType + (stock != 1 ? " x" + stock : "") +
+                    " from " + dealer + " @ $" + price);
                 
-                if (msg.getSender().getLocalName().startsWith("M.Dealer")) {
-                    GUI.logInteraction("BrokerAgent", msg.getSender().getLocalName(), 
-                        "ACK", "Registered " + parts[0] + "@$" + parts[1]);
+                if (dealer.startsWith("M.Dealer")) {
+                    GUI.logInteraction("BrokerAgent", dealer, 
+                        "ACK", "Registered " + carType + "@$" + price);
+                }
+            }
+            for (ListingIndex.Listing old : listings.inventory(dealer)) {
+                if (!listed.contains(old.carTypeId)) {
+                    withdrawListing(dealer, old.carTypeId);
                 }
             }
         } catch (Exception e) {
@@ -95,14 +451,417 @@ public class BrokerAgent extends Agent {
         }
     }
 
+    /**
+     * Applies an incremental listing update in place
+     * @param msg INFORM with a PRICE_CHANGE, WITHDRAW or RESTOCK (sequence first)
+     * - Refuses deltas whose sequence is not above the dealer's last applied one
+     * - Deltas for car types the dealer has not listed are ignored
+     */
+    private void handleListingDelta(ACLMessage msg) {
+        try {
+            MessageCodec.Reader delta = MessageCodec.reader();
+            byte type = 0;
+            for (byte candidate : new byte[] {MessageCodec.PRICE_CHANGE, MessageCodec.WITHDRAW, MessageCodec.RESTOCK}) {
+                if (delta.read(msg, candidate)) {
+                    type = candidate;
+                    break;
+                }
+            }
+            if (type == 0) {
+                GUI.logMessage(getLocalName(), "Invalid listing delta: " + MessageCodec.describe(msg));
+                return;
+            }
+            String dealer = msg.getSender().getLocalName();
+            int sequence = delta.integer(0);
+            String carType = delta.string(1);
+            if (!listings.advanceSequence(dealer, sequence)) {
+                staleDeltas.incrementAndGet();
+                GUI.logMessage(getLocalName(), "⏭️ Stale update #" + sequence + " from " + dealer + " ignored");
+                return;
+            }
+            int carTypeId = carTypes.lookup(carType);
+            ListingIndex.Listing changed;
+            ReentrantLock lock = typeLock(carTypeId);
+            lock.lock();
+            try {
+                if (type == MessageCodec.PRICE_CHANGE) {
+                    int price = delta.integer(2);
+                    changed = listings.setPrice(dealer, carTypeId, price);
+                    if (changed != null) {
+                        listingChanged(changed, new ListingIndex.Listing(dealer, carTypeId, price, changed.stock));
+                    }
+                } else if (type == MessageCodec.WITHDRAW) {
+                    changed = listings.remove(dealer, carTypeId);
+                    if (changed != null) {
+                        listingChanged(changed, null);
+                    }
+                } else {
+                    changed = listings.restock(dealer, carTypeId, delta.integer(2));
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (changed == null) {
+                GUI.logMessage(getLocalName(), "⚠️ " + dealer + " has no " + carType + " listing to update");
+                return;
+            }
+            GUI.logMessage(getLocalName(), "🔁 " + MessageCodec.describe(msg) + " from " + dealer);
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Error processing listing delta: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stores or replaces one inventory entry under its car type lock
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @param price Listed price
+     * @param stock Units on hand (0 withdraws the entry)
+     */
+    private void storeListing(String dealer, int carTypeId, int price, int stock) {
+        ReentrantLock lock = typeLock(carTypeId);
+        lock.lock();
+        try {
+            ListingIndex.Listing replaced = listings.put(dealer, carTypeId, price, stock);
+            listingChanged(replaced, stock > 0 ? new ListingIndex.Listing(dealer, carTypeId, price, stock) : null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the best-offer cache and subscribers in step with one listing change
+     * - Called under the car type's lock, so subscribers see changes in index order
+     * @param before Listing before the change (null if newly added)
+     * @param after Listing after the change (null if removed)
+     */
+    private void listingChanged(ListingIndex.Listing before, ListingIndex.Listing after) {
+        if (before != null) {
+            offerCache.listingRemoved(before);
+        }
+        if (after != null) {
+            offerCache.listingAdded(after);
+        }
+        ListingIndex.Listing listing = after != null ? after : before;
+        if (listing == null) {
+            return;
+        }
+        for (ListingSubscriptions.Subscription sub : subscriptions.forCarType(listing.carTypeId)) {
+            int event = ListingSubscriptions.eventFor(sub, before, after);
+            if (event != 0) {
+                int price = event == MessageCodec.EVENT_REMOVE ? before.price : after.price;
+                deliver(feedMessage(sub, MessageCodec.listingEvent(event, listing.dealer, price)));
+            }
+        }
+    }
+
+    /**
+     * Handles listing feed subscriptions
+     * @param msg SUBSCRIBE with "CarType,MaxPrice", or CANCEL of an earlier subscription
+     * - Subscriptions are keyed by sender and conversation-id
+     * - SUBSCRIBE is answered with AGREE, then one LISTING_EVENTS snapshot
+     *   (an ADD per matching listing, cheapest first, up to SNAPSHOT_LIMIT)
+     * - Afterwards the subscriber gets an event whenever a matching listing is
+     *   added, removed or repriced
+     */
+    private void handleSubscription(ACLMessage msg) {
+        try {
+            if (msg.getPerformative() == ACLMessage.CANCEL) {
+                if (subscriptions.remove(msg.getSender(), msg.getConversationId()) != null) {
+                    GUI.logMessage(getLocalName(), "🔕 " + msg.getSender().getLocalName() + " unsubscribed");
+                }
+                return;
+            }
+            String[] criteria = msg.getContent().split(",");
+            int carTypeId = carTypes.intern(criteria[0]);	// Watch types not listed yet as well
+            int maxPrice = Integer.parseInt(criteria[1].trim());
+            ListingSubscriptions.Subscription sub = new ListingSubscriptions.Subscription(
+                msg.getSender(), msg.getConversationId(), carTypeId, maxPrice);
+
+            ACLMessage agree = msg.createReply();
+            agree.setPerformative(ACLMessage.AGREE);
+            deliver(agree);
+
+            // Register and snapshot under the type lock: no change falls in between
+            ReentrantLock lock = typeLock(carTypeId);
+            lock.lock();
+            try {
+                subscriptions.add(sub);
+                List<ListingIndex.Listing> matches = listings.range(carTypeId, maxPrice, 0, SNAPSHOT_LIMIT);
+                int[] events = new int[matches.size()];
+                String[] dealers = new String[matches.size()];
+                int[] prices = new int[matches.size()];
+                for (int i = 0; i < matches.size(); i++) {
+                    events[i] = MessageCodec.EVENT_ADD;
+                    dealers[i] = matches.get(i).dealer;
+                    prices[i] = matches.get(i).price;
+                }
+                deliver(feedMessage(sub, MessageCodec.listingEvents(events, dealers, prices)));
+            } finally {
+                lock.unlock();
+            }
+            GUI.logMessage(getLocalName(), "🔔 " + msg.getSender().getLocalName() +
+                " subscribed to " + criteria[0].trim() + " up to $" + maxPrice);
+            GUI.logInteraction(msg.getSender().getLocalName(), getLocalName(), "SUBSCRIBE", msg.getContent());
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Subscription error: " + e.getMessage());
+        }
+    }
+
+    // INFORM carrying feed events in the subscription's conversation
+    private ACLMessage feedMessage(ListingSubscriptions.Subscription sub, byte[] events) {
+        ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
+        inform.addReceiver(sub.subscriber);
+        inform.setConversationId(sub.conversationId);
+        MessageKind.tag(inform, MessageKind.LISTING_EVENTS);
+        inform.setByteSequenceContent(events);
+        return inform;
+    }
+
     /**
      * Processes buyer requests for specific car types
      * @param msg REQUEST message with desired car type
-     * - Finds lowest price from registered dealers
-     * - Returns best offer (REFUSE if none)
-     * - Logs matching in GUI
      */
     private void handleBuyerRequest(ACLMessage msg) {
+        handleBuyerRequests(Collections.singletonList(msg));
+    }
+
+    /**
+     * Processes a group of buyer requests
+     * @param requests REQUEST messages with desired car types
+     * - Groups requests by car type ID
+     * - Looks up lowest price once per car type through the best-offer cache
+     * - Hands each buyer the cheapest dealer(s) not reserved by another buyer
+     * - Requests with an AUCTION_BUDGET start a Contract-Net auction instead
+     */
+    private void handleBuyerRequests(List<ACLMessage> requests) {
+        Map<Integer, List<ACLMessage>> byCarType = new LinkedHashMap<>();
+        for (ACLMessage msg : requests) {
+            if (msg.getUserDefinedParameter(AUCTION_BUDGET) != null) {
+                startAuction(msg);
+                continue;
+            }
+            int carTypeId = msg.getContent() == null ? SymbolTable.UNKNOWN : carTypes.lookup(msg.getContent());
+            byCarType.computeIfAbsent(carTypeId, k -> new ArrayList<>()).add(msg);
+        }
+        for (Map.Entry<Integer, List<ACLMessage>> group : byCarType.entrySet()) {
+            List<List<ListingIndex.Listing>> matches = new ArrayList<>(group.getValue().size());
+            ReentrantLock lock = typeLock(group.getKey());
+            lock.lock();
+            try {
+                ListingIndex.Listing best = offerCache.get(group.getKey(), listings);
+                for (ACLMessage msg : group.getValue()) {
+                    long now = System.currentTimeMillis();
+                    List<ListingIndex.Listing> match = pickUnreserved(group.getKey(), best, now, dealerCount(msg));
+                    for (ListingIndex.Listing listing : match) {
+                        reservations.reserve(listing.dealer, msg.getSender().getLocalName(), now);
+                    }
+                    matches.add(match);
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < matches.size(); i++) {
+                answerBuyerRequest(group.getValue().get(i), matches.get(i));
+            }
+        }
+    }
+
+    /**
+     * Runs a buyer request as a Contract-Net auction
+     * @param msg REQUEST with desired car type and an AUCTION_BUDGET parameter
+     * - Sends one CFP to every dealer listing the car type
+     * - Bids are collected by handleAuctionBid() and awarded by awardAuction()
+     *   once all dealers answered or auctionDeadlineMs passed
+     * - REFUSE right away if no dealer lists the car type
+     */
+    private void startAuction(ACLMessage msg) {
+        try {
+            String carType = msg.getContent();
+            int budget = Integer.parseInt(msg.getUserDefinedParameter(AUCTION_BUDGET).trim());
+            List<ListingIndex.Listing> dealers = carType == null ? Collections.<ListingIndex.Listing>emptyList()
+                : listings.range(carTypes.lookup(carType), Integer.MAX_VALUE, 0, Integer.MAX_VALUE);
+            if (dealers.isEmpty()) {
+                answerBuyerRequest(msg, dealers);
+                return;
+            }
+            GUI.logInteraction(msg.getSender().getLocalName(), getLocalName(), "REQUEST", carType);
+
+            String id = getLocalName() + "-auction-" + auctionSequence.incrementAndGet();
+            ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+            for (ListingIndex.Listing listing : dealers) {
+                cfp.addReceiver(new AID(listing.dealer, AID.ISLOCALNAME));
+            }
+            MessageKind.tag(cfp, MessageKind.AUCTION);
+            cfp.setConversationId(id);
+            cfp.setContent(carType);
+            auctions.open(id, msg, carType, budget, dealers.size(), System.currentTimeMillis() + auctionDeadlineMs);
+            deliver(cfp);
+
+            GUI.logMessage(getLocalName(), "📣 CFP for " + carType + " to " + dealers.size() +
+                " dealers for " + msg.getSender().getLocalName() + " (" + auctionDeadlineMs + "ms)");
+            GUI.logInteraction(getLocalName(), "Dealers", "CFP", carType);
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Auction start error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a dealer's answer to a CFP
+     * @param msg PROPOSE with an OFFER (car type, bid), or REFUSE
+     * - Awards the auction as soon as every invited dealer answered
+     */
+    private void handleAuctionBid(ACLMessage msg) {
+        try {
+            String dealer = msg.getSender().getLocalName();
+            int price = -1;
+            MessageCodec.Reader bid = MessageCodec.reader();
+            if (msg.getPerformative() == ACLMessage.PROPOSE && bid.read(msg, MessageCodec.OFFER)) {
+                price = bid.integer(1);
+                GUI.logInteraction(dealer, getLocalName(), "PROPOSE", bid.string(0) + "," + price);
+            }
+            AuctionBook.Auction closed = auctions.answer(msg.getConversationId(), dealer, price);
+            if (closed != null) {
+                awardAuction(closed);
+            }
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Auction bid error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ends an auction
+     * @param auction Closed auction
+     * - ACCEPT_PROPOSAL to the lowest bid within budget (if its listing is still up),
+     *   REJECT_PROPOSAL to the other bidders
+     * - Buyer gets an INFORM with the DEAL_COMPLETED terms, or REFUSE
+     * - The deal is booked like a confirmed negotiation (commission, stock, notifications)
+     */
+    private void awardAuction(AuctionBook.Auction auction) {
+        try {
+            String buyer = auction.request.getSender().getLocalName();
+            String winner = auction.bestDealer();
+            if (winner != null && listings.get(winner, carTypes.lookup(auction.carType)) == null) {
+                winner = null;	// Sold out while the auction ran
+            }
+            for (String bidder : auction.bidders()) {
+                ACLMessage verdict = new ACLMessage(bidder.equals(winner)
+                    ? ACLMessage.ACCEPT_PROPOSAL : ACLMessage.REJECT_PROPOSAL);
+                verdict.addReceiver(new AID(bidder, AID.ISLOCALNAME));
+                MessageKind.tag(verdict, MessageKind.AUCTION);
+                verdict.setConversationId(auction.id);
+                verdict.setContent(auction.carType);
+                deliver(verdict);
+            }
+
+            ACLMessage reply = auction.request.createReply();
+            if (winner == null) {
+                reply.setPerformative(ACLMessage.REFUSE);
+                reply.setContent("No bids within budget");
+                deliver(reply);
+                GUI.logMessage(getLocalName(), "❌ Auction for " + auction.carType + " closed without a bid within $" +
+                    auction.budget + " (" + auction.bidders().size() + "/" + auction.invited() + " bids)");
+                GUI.logInteraction(getLocalName(), buyer, "REFUSE", "No bids within budget");
+                return;
+            }
+            reply.setPerformative(ACLMessage.INFORM);
+            reply.setByteSequenceContent(MessageCodec.dealCompleted(winner, auction.carType, auction.bestPrice()));
+            deliver(reply);
+            GUI.logMessage(getLocalName(), "🏆 Auction for " + auction.carType + ": " + winner + " wins @ $" +
+                auction.bestPrice() + " (" + auction.bidders().size() + "/" + auction.invited() + " bids)");
+            GUI.logInteraction(getLocalName(), buyer, "INFORM", winner + "," + auction.bestPrice());
+
+            recordDeal(DealLedger.newId(), buyer, winner, auction.carType, auction.bestPrice());
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Auction award error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Chooses the cheapest dealer without an active lease
+     * @param carTypeId Requested car type ID
+     * @param best Cheapest listing for the car type (null if none)
+     * @param now Current time in milliseconds
+     * @return Unreserved listing, or the cheapest one if every dealer is reserved
+     */
+    private ListingIndex.Listing pickUnreserved(int carTypeId, ListingIndex.Listing best, long now) {
+        if (best == null || !reservations.isReserved(best.dealer, now)) {
+            return best;
+        }
+        for (int offset = 0; ; offset += RESERVATION_SCAN_PAGE) {
+            List<ListingIndex.Listing> page =
+                listings.range(carTypeId, Integer.MAX_VALUE, offset, RESERVATION_SCAN_PAGE);
+            for (ListingIndex.Listing listing : page) {
+                if (!reservations.isReserved(listing.dealer, now)) {
+                    return listing;
+                }
+            }
+            if (page.size() < RESERVATION_SCAN_PAGE) {
+                return best;	// Leases are soft: share the cheapest dealer
+            }
+        }
+    }
+
+    /**
+     * Chooses up to count dealers without an active lease, cheapest first
+     * @param carTypeId Requested car type ID
+     * @param best Cheapest listing for the car type (null if none)
+     * @param now Current time in milliseconds
+     * @param count Dealers wanted
+     * @return Unreserved listings, or just the cheapest one if every dealer is reserved
+     */
+    private List<ListingIndex.Listing> pickUnreserved(int carTypeId, ListingIndex.Listing best, long now, int count) {
+        if (count == 1) {
+            ListingIndex.Listing match = pickUnreserved(carTypeId, best, now);
+            return match == null ? Collections.<ListingIndex.Listing>emptyList() : Collections.singletonList(match);
+        }
+        List<ListingIndex.Listing> picked = new ArrayList<>(count);
+        if (best == null) {
+            return picked;
+        }
+        for (int offset = 0; picked.size() < count; offset += RESERVATION_SCAN_PAGE) {
+            List<ListingIndex.Listing> page =
+                listings.range(carTypeId, Integer.MAX_VALUE, offset, RESERVATION_SCAN_PAGE);
+            for (ListingIndex.Listing listing : page) {
+                if (!reservations.isReserved(listing.dealer, now) && picked.size() < count) {
+                    picked.add(listing);
+                }
+            }
+            if (page.size() < RESERVATION_SCAN_PAGE) {
+                break;
+            }
+        }
+        if (picked.isEmpty()) {
+            picked.add(best);	// Leases are soft: share the cheapest dealer
+        }
+        return picked;
+    }
+
+    /**
+     * @param msg Buyer REQUEST
+     * @return Dealers the buyer asked for (DEALER_COUNT parameter, 1 to MAX_DEALER_COUNT)
+     */
+    private static int dealerCount(ACLMessage msg) {
+        String count = msg.getUserDefinedParameter(DEALER_COUNT);
+        if (count == null) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_DEALER_COUNT, Integer.parseInt(count.trim())));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Replies to one buyer request
+     * @param msg REQUEST message with desired car type
+     * @param matches Dealers picked for the buyer, cheapest first (empty if none)
+     * - Returns best offer with the listing version (REFUSE if none)
+     * - Buyers that asked for several dealers get DEALER_MATCHES instead
+     * - Logs matching in GUI
+     */
+    private void answerBuyerRequest(ACLMessage msg, List<ListingIndex.Listing> matches) {
         try {
             GUI.logInteraction(
                 msg.getSender().getLocalName(), 
@@ -113,24 +872,29 @@ public class BrokerAgent extends Agent {
             
             String requestedCar = msg.getContent();
             ACLMessage reply = msg.createReply();
-            
-            String bestDealer = null;
-            int bestPrice = Integer.MAX_VALUE;
-
-            for (Map.Entry<String, String> entry : carListings.entrySet()) {
-                String[] parts = entry.getValue().split(",");
-                if (parts[0].equals(requestedCar)) {
-                    int price = Integer.parseInt(parts[1]);
-                    if (price < bestPrice) {
-                        bestPrice = price;
-                        bestDealer = entry.getKey();
-                    }
-                }
-            }
 
-            if (bestDealer != null) {
+            if (!matches.isEmpty() && dealerCount(msg) > 1) {
+                String[] dealers = new String[matches.size()];
+                int[] prices = new int[matches.size()];
+                for (int i = 0; i < dealers.length; i++) {
+                    dealers[i] = matches.get(i).dealer;
+                    prices[i] = matches.get(i).price;
+                }
+                reply.setPerformative(ACLMessage.INFORM);
+                reply.setByteSequenceContent(MessageCodec.dealerMatches(dealers, prices));
+                reply.addUserDefinedParameter(LISTING_VERSION, Long.toString(listings.version()));
+                GUI.logMessage(getLocalName(), 
+                    "🤝 Matched " + msg.getSender().getLocalName() + 
+                    " with " + dealers.length + " dealers from $" + prices[0]);
+                GUI.logInteraction(getLocalName(), msg.getSender().getLocalName(), 
+                    "INFORM", MessageCodec.describe(reply));
+            } else if (!matches.isEmpty()) {
+                ListingIndex.Listing best = matches.get(0);
+                String bestDealer = best.dealer;
+                int bestPrice = best.price;
                 reply.setPerformative(ACLMessage.INFORM);
-                reply.setContent(bestDealer + "," + bestPrice);
+                reply.setByteSequenceContent(MessageCodec.bestOffer(bestDealer, bestPrice));
+                reply.addUserDefinedParameter(LISTING_VERSION, Long.toString(listings.version()));
                 GUI.logMessage(getLocalName(), 
                     "🤝 Matched " + msg.getSender().getLocalName() + 
                     " with " + bestDealer + " @ $" + bestPrice);
@@ -143,7 +907,7 @@ public class BrokerAgent extends Agent {
                 GUI.logInteraction(getLocalName(), msg.getSender().getLocalName(), 
                     "REFUSE", "No matching dealers");
             }
-            send(reply);
+            deliver(reply);
         } catch (Exception e) {
             GUI.logMessage(getLocalName(), "⚠️ Error processing buyer request: " + e.getMessage());
         }
@@ -151,8 +915,10 @@ public class BrokerAgent extends Agent {
     
     /**
      * Handles manual buyer queries with price limits
-     * @param msg QUERY_IF message with "CarType,MaxPrice"
-     * - Returns list of dealers matching criteria
+     * @param msg QUERY_IF message with "CarType,MaxPrice[,Limit[,Offset]]"
+     * - Returns one page of matching dealers, cheapest first
+     * - Limit/Offset are optional (default: every match)
+     * - Reply carries the listing version (LISTING_VERSION parameter)
      * - Used for manual negotiation process
      */
     private void handleManualQuery(ACLMessage msg) {
@@ -165,25 +931,22 @@ public class BrokerAgent extends Agent {
             );
 
             String[] criteria = msg.getContent().split(",");
-            String buyerCarType = criteria[0].trim().toLowerCase();
+            int buyerCarType = carTypes.lookup(criteria[0]);
             int maxPrice = Integer.parseInt(criteria[1].trim());
+            int limit = criteria.length > 2 ? Integer.parseInt(criteria[2].trim()) : Integer.MAX_VALUE;
+            int offset = criteria.length > 3 ? Integer.parseInt(criteria[3].trim()) : 0;
 
             ACLMessage reply = msg.createReply();
             reply.setPerformative(ACLMessage.INFORM);
             
             StringBuilder dealers = new StringBuilder();
-            for (Map.Entry<String, String> entry : carListings.entrySet()) {
-                String[] parts = entry.getValue().split(",");
-                String dealerCarType = parts[0].trim().toLowerCase();
-                int price = Integer.parseInt(parts[1].trim());
-                
-                if (dealerCarType.equals(buyerCarType) && price <= maxPrice) {
-                    dealers.append(entry.getKey()).append(",").append(price).append(";");
-                }
+            for (ListingIndex.Listing listing : listings.range(buyerCarType, maxPrice, offset, limit)) {
+                dealers.append(listing.dealer).append(",").append(listing.price).append(";");
             }
             
             reply.setContent(dealers.toString());
-            send(reply);
+            reply.addUserDefinedParameter(LISTING_VERSION, Long.toString(listings.version()));
+            deliver(reply);
 
             GUI.logInteraction(
                 getLocalName(), 
@@ -198,47 +961,83 @@ public class BrokerAgent extends Agent {
 
     /**
      * Finalizes successful deals from manual negotiations
-     * @param msg CONFIRM message with "DEAL_CONFIRMED,..."
+     * @param msg CONFIRM message with "DEAL_CONFIRMED,..." and a DEAL_ID parameter
+     * - Without DEAL_ID (older senders) the ID is sender + conversation-id (or the
+     *   deal's parties and car type), so repeats of that message are still booked once
      * - Updates commission totals
-     * - Removes dealer from listings
+     * - Takes the sold car out of the dealer's stock
      * - Notifies both parties
      */
     private void handleDealConfirmation(ACLMessage msg) {
         try {
-            String[] parts = msg.getContent().split(",");
-            if (parts.length != 5 || !parts[0].equals("DEAL_CONFIRMED")) {
-                GUI.logMessage(getLocalName(), "Invalid deal confirmation: " + msg.getContent());
+            MessageCodec.Reader deal = MessageCodec.reader();
+            if (!deal.read(msg, MessageCodec.DEAL_CONFIRMED)) {
+                GUI.logMessage(getLocalName(), "Invalid deal confirmation: " + MessageCodec.describe(msg));
                 return;
             }
 
-            String buyer = parts[1];
-            String dealer = parts[2];
-            String carType = parts[3];
-            int price = Integer.parseInt(parts[4]);
-            
+            String dealId = msg.getUserDefinedParameter(DEAL_ID);
+            if (dealId == null) {
+                dealId = msg.getSender().getName() + "|" + (msg.getConversationId() != null
+                    ? msg.getConversationId() : deal.string(0) + "|" + deal.string(1) + "|" + deal.string(2));
+            }
+            recordDeal(dealId, deal.string(0), deal.string(1), deal.string(2), deal.integer(3));
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), 
+                "⚠️ Deal confirmation error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Books a completed deal once per deal ID
+     * - Repeated confirmations of a booked deal are logged and ignored
+     * - New deals are appended to the journal before commission is updated
+     * @param dealId Deal ID (see DealLedger)
+     * @param buyer Buyer agent name
+     * @param dealer Dealer agent name
+     * @param carType Car type sold
+     * @param price Final agreed price
+     */
+    private void recordDeal(String dealId, String buyer, String dealer, String carType, int price) {
+        try {
             // Calculate commission
             int commission = 500;
-            totalCommission += commission;
-            
-            // Determine commission type
-            if(buyer.startsWith("M.Buyer") || dealer.startsWith("M.Dealer")) {
-                manualCommission += commission;
-            } else {
-                automatedCommission += commission;
+            boolean manual = buyer.startsWith("M.Buyer") || dealer.startsWith("M.Dealer");
+            long fingerprint = DealLedger.fingerprint(dealId);
+            long now = System.currentTimeMillis();
+            if (!ledger.record(fingerprint, buyer, dealer, carType, price, commission, manual, now)) {
+                GUI.logMessage(getLocalName(), "🔁 Duplicate confirmation ignored - " + buyer + " ↔ " + dealer +
+                    " | " + carType + " (" + dealId + ")");
+                return;
+            }
+            if (journal != null) {
+                try {
+                    journal.append(fingerprint, buyer, dealer, carType, price, commission, manual, now);
+                } catch (IOException e) {
+                    GUI.logMessage(getLocalName(), "⚠️ Journal write error: " + e.getMessage());
+                }
+            }
+            synchronized (commissionLock) {
+                totalCommission += commission;
+                
+                // Determine commission type
+                if (manual) {
+                    manualCommission += commission;
+                } else {
+                    automatedCommission += commission;
+                }
             }
 
-            // Update GUI
-            GUI.updateCommissionDisplay(automatedCommission, manualCommission, totalCommission);
+            // Update GUI (other shards report to the primary)
+            publishCommission(manual ? 0 : commission, manual ? commission : 0);
             
-         // Original functionality
-            carListings.remove(dealer);
             GUI.logMessage(getLocalName(), 
                 "✅ Deal Confirmed - " + buyer + " ↔ " + dealer + 
                 " | " + carType + " @ $" + price +
                 " | Commission: RM" + commission);
 
-            // 1. Remove dealer from active listings
-            carListings.remove(dealer);
+            // 1. Take the car out of the dealer's stock
+            sellOne(dealer, carType);
 
             // 2. Log the successful deal
             GUI.logMessage(getLocalName(), 
@@ -247,6 +1046,9 @@ public class BrokerAgent extends Agent {
 
             // 3. Notify both parties
             notifyDealCompletion(buyer, dealer, carType, price);
+            if (manual) {
+                GUI.endManualDeal(buyer, dealer, dealId);	// The pair's next negotiation gets a new ID
+            }
 
             // 4. Update GUI interactions
             GUI.logInteraction(buyer, getLocalName(), 
@@ -268,15 +1070,15 @@ public class BrokerAgent extends Agent {
      */
     private void handleDealRejection(ACLMessage msg) {
         try {
-            String[] parts = msg.getContent().split(",");
-            if (parts.length != 4 || !parts[0].equals("DEAL_REJECTED")) return;
+            MessageCodec.Reader deal = MessageCodec.reader();
+            if (!deal.read(msg, MessageCodec.DEAL_REJECTED)) return;
             
-            String buyer = parts[1];
-            String dealer = parts[2];
-            String carType = parts[3];
+            String buyer = deal.string(0);
+            String dealer = deal.string(1);
+            String carType = deal.string(2);
             
-            // Remove both from listings
-            carListings.remove(dealer);
+            // Withdraw the dealer's listing for this car type
+            withdrawDealer(dealer, carType);
             
             // Log interactions
             GUI.logMessage(getLocalName(), 
@@ -292,6 +1094,112 @@ public class BrokerAgent extends Agent {
         }
     }
 
+    /**
+     * Publishes commission after a deal
+     * - Primary shard: shows its own plus reported shard totals
+     * - Other shards: report the increment to the primary shard
+     * @param automated Automated commission just earned
+     * @param manual Manual commission just earned
+     */
+    private void publishCommission(int automated, int manual) {
+        if (getLocalName().equals(BrokerRouter.PRIMARY)) {
+            int auto;
+            int man;
+            synchronized (commissionLock) {
+                auto = automatedCommission + shardAutomatedCommission;
+                man = manualCommission + shardManualCommission;
+            }
+            GUI.updateCommissionDisplay(auto, man, auto + man);
+        } else {
+            ACLMessage report = new ACLMessage(ACLMessage.INFORM);
+            report.addReceiver(BrokerRouter.primary());
+            MessageKind.tag(report, MessageKind.COMMISSION_REPORT);
+            report.setContent(automated + "," + manual);
+            deliver(report);
+        }
+    }
+
+    /**
+     * Aggregates commission increments from other shards (primary shard only)
+     * @param msg INFORM with "AutomatedDelta,ManualDelta"
+     */
+    private void handleCommissionReport(ACLMessage msg) {
+        try {
+            if (!BrokerRouter.isBroker(msg.getSender().getLocalName())) return;
+            String[] parts = msg.getContent().split(",");
+            int automated = Integer.parseInt(parts[0].trim());
+            int manual = Integer.parseInt(parts[1].trim());
+            synchronized (commissionLock) {
+                shardAutomatedCommission += automated;
+                shardManualCommission += manual;
+            }
+            publishCommission(0, 0);
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Commission report error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes a dealer's listing for a car type and its lease under the type lock
+     * @param dealer Dealer agent name
+     * @param carType Car type the dealer was listed under
+     */
+    private void withdrawDealer(String dealer, String carType) {
+        int carTypeId = carTypes.lookup(carType);
+        ReentrantLock lock = typeLock(carTypeId);
+        lock.lock();
+        try {
+            withdrawListing(dealer, carTypeId);
+            reservations.release(dealer, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes one sold car out of a dealer's stock and ends its lease
+     * - The listing stays (at the same price) while stock remains
+     * @param dealer Dealer agent name
+     * @param carType Car type sold
+     */
+    private void sellOne(String dealer, String carType) {
+        int carTypeId = carTypes.lookup(carType);
+        ListingIndex.Listing after;
+        ReentrantLock lock = typeLock(carTypeId);
+        lock.lock();
+        try {
+            after = listings.takeOne(dealer, carTypeId);
+            if (after != null && after.stock == 0) {
+                listingChanged(after, null);
+            }
+            reservations.release(dealer, null);
+        } finally {
+            lock.unlock();
+        }
+        if (after != null) {
+            GUI.logMessage(getLocalName(), "📦 " + dealer + " has " + after.stock + " " + carType + " left");
+        }
+    }
+
+    /**
+     * Removes a dealer's listing for a car type and keeps the cache and subscribers in step
+     * - Callers hold the car type's lock, or take it here (reentrant)
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     */
+    private void withdrawListing(String dealer, int carTypeId) {
+        ReentrantLock lock = typeLock(carTypeId);
+        lock.lock();
+        try {
+            ListingIndex.Listing removed = listings.remove(dealer, carTypeId);
+            if (removed != null) {
+                listingChanged(removed, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Sends completion notifications to both parties
      * @param buyer Buyer agent name
@@ -304,14 +1212,14 @@ public class BrokerAgent extends Agent {
             // Notify buyer
             ACLMessage buyerMsg = new ACLMessage(ACLMessage.CONFIRM);
             buyerMsg.addReceiver(new AID(buyer, AID.ISLOCALNAME));
-            buyerMsg.setContent("DEAL_COMPLETED," + dealer + "," + carType + "," + price);
-            send(buyerMsg);
+            buyerMsg.setByteSequenceContent(MessageCodec.dealCompleted(dealer, carType, price));
+            deliver(buyerMsg);
 
             // Notify dealer
             ACLMessage dealerMsg = new ACLMessage(ACLMessage.CONFIRM);
             dealerMsg.addReceiver(new AID(dealer, AID.ISLOCALNAME));
-            dealerMsg.setContent("DEAL_COMPLETED," + buyer + "," + carType + "," + price);
-            send(dealerMsg);
+            dealerMsg.setByteSequenceContent(MessageCodec.dealCompleted(buyer, carType, price));
+            deliver(dealerMsg);
 
         } catch (Exception e) {
             GUI.logMessage(getLocalName(), 
@@ -323,22 +1231,22 @@ public class BrokerAgent extends Agent {
     // logs the failure to the GUI, and updates the sequence diagram.
     private void handleNegotiationFailure(ACLMessage msg) {
         try {
-            String content = msg.getContent();
-            if (content.startsWith("NEGOTIATION_FAILED")) {
-                String[] parts = content.split(",");
-                if (parts.length >= 4) {
-                    String buyer = parts[1];
-                    String dealer = parts[2];
-                    String carType = parts[3];
+            MessageCodec.Reader failure = MessageCodec.reader();
+            if (failure.read(msg, MessageCodec.NEGOTIATION_FAILED)) {
+                String buyer = failure.string(0);
+                String dealer = failure.string(1);
+                String carType = failure.string(2);
+                
+                // Let the next buyer have this dealer
+                reservations.release(dealer, buyer);
+                
+                GUI.logMessage(getLocalName(), 
+                        "❌ Negotiation Failed - " + buyer + " ↔ " + dealer + 
+                        " | " + carType);
                     
-                    GUI.logMessage(getLocalName(), 
-                            "❌ Negotiation Failed - " + buyer + " ↔ " + dealer + 
-                            " | " + carType);
-                        
-                        // Log interaction for sequence diagram
-                        GUI.logInteraction(msg.getSender().getLocalName(), getLocalName(), 
-                            "FAILURE", "Negotiation failed: " + buyer + "-" + dealer);
-                }
+                    // Log interaction for sequence diagram
+                    GUI.logInteraction(msg.getSender().getLocalName(), getLocalName(), 
+                        "FAILURE", "Negotiation failed: " + buyer + "-" + dealer);
             }
         } catch (Exception e) {
             GUI.logMessage(getLocalName(), 
@@ -0,0 +1,92 @@
+package IntelligentProject;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import java.util.Locale;
+
+/**
+ * Routing layer for the sharded BrokerAgent
+ * - The car type hash space is split into equal ranges, one per shard
+ * - Shard 0 keeps the name "BrokerAgent", others are "BrokerAgent-1" .. "BrokerAgent-(N-1)"
+ * - Shard 0 also aggregates commission totals reported by the other shards
+ * - With one shard (default) every car type routes to "BrokerAgent"
+ */
+public final class BrokerRouter {
+    public static final String PRIMARY = "BrokerAgent";	// Shard 0 / commission aggregator
+
+    private static volatile int shardCount = 1;
+
+    private BrokerRouter() {
+    }
+
+    /**
+     * Sets the number of broker shards (call before agents start)
+     * @param count Number of shards (at least 1)
+     */
+    public static void setShardCount(int count) {
+        shardCount = Math.max(1, count);
+    }
+
+    public static int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Maps a car type to its shard by hash range
+     * @param carType Car type in any casing
+     * @return Shard index in [0, shardCount)
+     */
+    public static int shardOf(String carType) {
+        int shards = shardCount;
+        if (shards == 1 || carType == null) {
+            return 0;
+        }
+        // Spread the hash, then scale the unsigned 32-bit value into the shard ranges
+        int h = carType.trim().toLowerCase(Locale.ROOT).hashCode() * 0x9E3779B9;
+        return (int) (((h & 0xFFFFFFFFL) * shards) >>> 32);
+    }
+
+    /**
+     * @param shard Shard index
+     * @return Local agent name of the shard
+     */
+    public static String shardName(int shard) {
+        return shard == 0 ? PRIMARY : PRIMARY + "-" + shard;
+    }
+
+    /**
+     * @param carType Car type in any casing
+     * @return Broker shard owning the car type
+     */
+    public static AID brokerFor(String carType) {
+        return new AID(shardName(shardOf(carType)), AID.ISLOCALNAME);
+    }
+
+    /**
+     * @return Shard that aggregates commission totals
+     */
+    public static AID primary() {
+        return new AID(PRIMARY, AID.ISLOCALNAME);
+    }
+
+    /**
+     * @param localName Agent local name
+     * @return True if the name belongs to a broker shard
+     */
+    public static boolean isBroker(String localName) {
+        return localName != null && (localName.equals(PRIMARY) || localName.startsWith(PRIMARY + "-"));
+    }
+
+    /**
+     * Template matching messages sent by any broker shard
+     */
+    public static MessageTemplate fromAnyBroker() {
+        return new MessageTemplate(new MessageTemplate.MatchExpression() {
+            @Override
+            public boolean match(ACLMessage msg) {
+                return msg.getSender() != null && isBroker(msg.getSender().getLocalName());
+            }
+        });
+    }
+}
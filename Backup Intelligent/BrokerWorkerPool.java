@@ -0,0 +1,104 @@
+package IntelligentProject;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded worker pool that runs BrokerAgent handlers off the agent thread
+ * - One single-threaded lane per worker; a key (the sender) always maps to the
+ *   same lane, so work from one sender runs, and is answered, in arrival order
+ * - Each lane queue is bounded; a full lane blocks the submitting agent thread
+ *   (back-pressure) instead of dropping or reordering work
+ */
+public class BrokerWorkerPool {
+    private static final ThreadLocal<Boolean> ON_WORKER = new ThreadLocal<>();
+
+    private final ExecutorService[] lanes;
+
+    /**
+     * @param name Thread name prefix
+     * @param threads Number of lanes (one thread each)
+     * @param queueCapacity Pending tasks allowed per lane
+     */
+    public BrokerWorkerPool(String name, int threads, int queueCapacity) {
+        lanes = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < lanes.length; i++) {
+            final String threadName = name + "-worker-" + i;
+            ThreadFactory factory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(() -> {
+                        ON_WORKER.set(Boolean.TRUE);
+                        r.run();
+                    }, threadName);
+                    t.setDaemon(true);
+                    return t;
+                }
+            };
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), factory, new BlockWhenFull());
+        }
+    }
+
+    /**
+     * Queues a task on the lane owned by a key
+     * @param key Ordering key (tasks with equal keys run in submission order)
+     * @param task Work to run
+     */
+    public void submit(String key, Runnable task) {
+        int lane = Math.floorMod(key == null ? 0 : key.hashCode(), lanes.length);
+        lanes[lane].execute(task);
+    }
+
+    /**
+     * @return Number of lanes
+     */
+    public int size() {
+        return lanes.length;
+    }
+
+    /**
+     * @return True when called from one of the pool's threads
+     */
+    public static boolean onWorkerThread() {
+        return ON_WORKER.get() != null;
+    }
+
+    /**
+     * Stops accepting work and waits briefly for queued tasks
+     */
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                lane.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Waits for lane capacity instead of rejecting
+    private static final class BlockWhenFull implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Worker lane shut down");
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while queueing", e);
+            }
+        }
+    }
+}
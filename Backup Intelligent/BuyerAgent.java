@@ -3,25 +3,32 @@ package IntelligentProject;
 import jade.core.Agent;
 import jade.core.AID;
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
-import jade.core.behaviours.Behaviour;
+import jade.core.behaviours.FSMBehaviour;
 import jade.core.behaviours.OneShotBehaviour;
-import java.util.Date;
+import jade.core.behaviours.SimpleBehaviour;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 public class BuyerAgent extends Agent {
 	// Negotiation parameters
 	protected String carType;		// Desired car model
     protected int initialOffer;		// First offer amount
     protected int reservePrice;		// Maximum budget (won't exceed this)
-    protected boolean negotiationComplete = false;
-    protected int minRounds = 3;	// Minimum negotiation rounds before accepting
-    protected int currentRound = 0;	// Current negotiation round
+    protected BuyerStrategy strategy;	// Answers counter-offers ("strategy=NAME" argument)
+    protected int dealerCount = 1;	// Dealers negotiated with at once
+    protected boolean auction = false;	// Let the broker auction the car instead of negotiating
+    // PROPOSE parameter ("true"): the buyer confirms the deal it picks, a dealer's accept is only an offer
+    public static final String BUYER_CONFIRMS = "buyer-confirms";
+    private ConversationRouter conversations;	// Matches replies by conversation-id
+    private static final long BROKER_TIMEOUT_MS = 30000;	// Longest wait for the broker's match
+    private static final long ROUND_TIMEOUT_MS = 15000;	// Longest wait for a dealer's answer
 
     protected void setup() {
         try {
-            Object[] args = getArguments();
-            if (args == null || args.length != 3) {
-                GUI.logMessage(getLocalName(), "❌ Usage: <CarModel> <InitialOffer> <MaxBudget>");
+            Object[] args = Strategies.positional(getArguments());
+            if (args.length < 3 || args.length > 4) {
+                GUI.logMessage(getLocalName(), "❌ Usage: <CarModel> <InitialOffer> <MaxBudget> [Dealers|auction] [strategy=NAME]");
                 doDelete();
                 return;
             }
@@ -29,13 +36,23 @@ public class BuyerAgent extends Agent {
             carType = args[0].toString();
             initialOffer = Integer.parseInt(args[1].toString());
             reservePrice = Integer.parseInt(args[2].toString());
+            if (args.length == 4 && "auction".equalsIgnoreCase(args[3].toString())) {
+                auction = true;
+            } else if (args.length == 4) {
+                dealerCount = Math.max(1, Integer.parseInt(args[3].toString()));
+            }
+            strategy = Strategies.buyer(getArguments());
 
             GUI.logMessage(getLocalName(), 
                 "🛒 Started for " + carType + 
                 "\n   Initial Offer: $" + initialOffer + 
-                "\n   Max Budget: $" + reservePrice);
+                "\n   Max Budget: $" + reservePrice +
+                (dealerCount > 1 ? "\n   Dealers: up to " + dealerCount : "") +
+                (auction ? "\n   Mode: broker auction" : "") +
+                (!Strategies.LEGACY.equals(strategy.name()) ? "\n   Strategy: " + strategy.name() : ""));
 
-            addBehaviour(new NegotiationStarter());
+            conversations = ConversationRouter.forAgent(this);
+            addBehaviour(new Negotiation());
 
         } catch (Exception e) {
             GUI.logMessage(getLocalName(), "⚠️ Initialization failed: " + e.getMessage());
@@ -44,186 +61,433 @@ public class BuyerAgent extends Agent {
     }
 
     /**
-     * Initial negotiation starter behavior (one-time)
-     * - Contacts BrokerAgent to find dealers
-     * - Handles broker response timeout
+     * Waits for the next reply of a conversation without blocking the agent
+     * - Checks the conversation's bucket, then blocks the behaviour until a
+     *   message arrives or the timeout elapses (no blockingReceive)
+     * - Resets itself when it ends, so an FSM can enter it again
      */
-    private class NegotiationStarter extends OneShotBehaviour { // Not cyclic
+    private abstract class AwaitReply extends SimpleBehaviour {
+        private final long timeoutMs;
+        private long deadline = -1;
+        private boolean finished = false;
+        private int exit;
+
+        AwaitReply(long timeoutMs) {
+            super(BuyerAgent.this);
+            this.timeoutMs = timeoutMs;
+        }
+
+        /** @return Conversation to wait on */
+        abstract String conversation();
+
+        /** @return FSM exit code for a reply */
+        abstract int onReply(ACLMessage reply);
+
+        /** @return FSM exit code for a timeout */
+        abstract int onTimeout();
+
         public void action() {
+            if (deadline < 0) {
+                deadline = System.currentTimeMillis() + timeoutMs;
+            }
+            ACLMessage reply = conversations.receive(conversation());
+            if (reply != null) {
+                exit = onReply(reply);
+                finished = true;
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                exit = onTimeout();
+                finished = true;
+                return;
+            }
+            block(remaining);
+        }
+
+        public boolean done() {
+            return finished;
+        }
+
+        public int onEnd() {
+            deadline = -1;
+            finished = false;
+            return exit;
+        }
+    }
+
+    /**
+     * Negotiation state with one dealer
+     */
+    private static final class DealerTrack {
+        final AID dealer;
+        final String conversation;	// One conversation-id for every round
+        final String dealId = DealLedger.newId();	// Sent with every offer, names the deal at the broker
+        int currentOffer;			// This buyer's latest offer to the dealer
+        ACLMessage response;		// Dealer's answer to the current round (null = none yet)
+        int counter;				// Dealer's latest counter-offer
+
+        DealerTrack(AID dealer, String conversation, int currentOffer) {
+            this.dealer = dealer;
+            this.conversation = conversation;
+            this.currentOffer = currentOffer;
+        }
+    }
+
+    /**
+     * Buyer negotiation as a non-blocking state machine
+     * - FIND: asks the BrokerAgent for the cheapest dealer (or dealerCount dealers,
+     *   or a Contract-Net auction within the budget)
+     * - AWAIT_DEALER: waits for the match (REFUSE, timeout or an auction award ends the FSM)
+     * - PROPOSE: sends this round's offer to every dealer still in play
+     * - AWAIT_COUNTER: waits until every dealer answered this round (or the timeout)
+     * - DECIDE: takes the cheapest acceptable deal, or counters (back to PROPOSE),
+     *   dropping dealers that refused, timed out or went over budget
+     * - END: reports failures to the broker and stops the agent once a dealer was involved
+     * - Every wait is a blocked behaviour woken by messages or its timeout, so the
+     *   agent thread is free between events and one agent can run several of these
+     * - With several dealers all rounds run side by side under one budget: offers to
+     *   the others are capped at the lowest counter seen, the buyer confirms the deal
+     *   it picks (BUYER_CONFIRMS) and sends CANCEL to the rest
+     * - Outcomes and time-to-deal go to DealMetrics under mode()
+     */
+    private class Negotiation extends FSMBehaviour {
+        private static final String FIND = "find";
+        private static final String AWAIT_DEALER = "await-dealer";
+        private static final String PROPOSE = "propose";
+        private static final String AWAIT_COUNTER = "await-counter";
+        private static final String DECIDE = "decide";
+        private static final String END = "end";
+
+        private static final int STOP = 0;		// Go to END
+        private static final int NEXT = 1;		// Go to the next state
+
+        // Outcome of one dealer's answer
+        private static final int DROPPED = 0;		// Dealer out of the negotiation
+        private static final int CONTINUE = 1;		// New offer ready for the next round
+        private static final int ACCEPTED = 2;		// Dealer accepted the current offer
+        private static final int ACCEPTABLE = 3;	// Counter-offer the buyer can take
+
+        private String conversation;	// Broker lookup
+        private final List<DealerTrack> tracks = new ArrayList<>();	// Dealers matched (in play or not)
+        private final List<DealerTrack> active = new ArrayList<>();	// Dealers still in play
+        private DealerTrack winner;		// Dealer the deal was made with
+        private boolean awarded = false;	// Broker auction ended in a deal
+        private int currentRound = 0;	// Current negotiation round
+        private long requestedAt;		// When the broker was asked (time-to-deal start)
+
+        Negotiation() {
+            super(BuyerAgent.this);
+
+            registerFirstState(new OneShotBehaviour(myAgent) {
+                public void action() {
+                    requestDealer();
+                }
+            }, FIND);
+
+            registerState(new AwaitReply(BROKER_TIMEOUT_MS) {
+                String conversation() {
+                    return conversation;
+                }
+
+                int onReply(ACLMessage reply) {
+                    conversations.close(conversation);
+                    return handleBrokerResponse(reply);
+                }
+
+                int onTimeout() {
+                    conversations.close(conversation);
+                    GUI.logMessage(getLocalName(), "⌛ No answer from broker");
+                    return STOP;
+                }
+            }, AWAIT_DEALER);
+
+            registerState(new OneShotBehaviour(myAgent) {
+                public void action() {
+                    currentRound++;
+                    GUI.logMessage(getLocalName(), "🔄 ROUND " + currentRound);
+                    for (DealerTrack track : active) {
+                        sendOffer(track);
+                    }
+                }
+            }, PROPOSE);
+
+            registerState(new SimpleBehaviour(myAgent) {
+                private long deadline = -1;
+                private boolean finished = false;
+
+                public void action() {
+                    if (deadline < 0) {
+                        deadline = System.currentTimeMillis() + ROUND_TIMEOUT_MS;
+                    }
+                    int waiting = 0;
+                    for (DealerTrack track : active) {
+                        if (track.response == null) {
+                            track.response = conversations.receive(track.conversation);
+                        }
+                        if (track.response == null) {
+                            waiting++;
+                        }
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (waiting == 0 || remaining <= 0) {
+                        finished = true;
+                    } else {
+                        block(remaining);
+                    }
+                }
+
+                public boolean done() {
+                    return finished;
+                }
+
+                public int onEnd() {
+                    deadline = -1;
+                    finished = false;
+                    return NEXT;
+                }
+            }, AWAIT_COUNTER);
+
+            registerState(new OneShotBehaviour(myAgent) {
+                private int exit;
+
+                public void action() {
+                    exit = decide() ? NEXT : STOP;
+                }
+
+                public int onEnd() {
+                    return exit;
+                }
+            }, DECIDE);
+
+            registerLastState(new OneShotBehaviour(myAgent) {
+                public void action() {
+                    finish();
+                }
+            }, END);
+
+            registerDefaultTransition(FIND, AWAIT_DEALER);
+            registerTransition(AWAIT_DEALER, PROPOSE, NEXT);
+            registerDefaultTransition(AWAIT_DEALER, END);
+            registerDefaultTransition(PROPOSE, AWAIT_COUNTER);
+            registerDefaultTransition(AWAIT_COUNTER, DECIDE);
+            registerTransition(DECIDE, PROPOSE, NEXT);
+            registerDefaultTransition(DECIDE, END);
+        }
+
+        /**
+         * Contacts BrokerAgent to find dealers
+         */
+        private void requestDealer() {
             try {
                 ACLMessage findDealer = new ACLMessage(ACLMessage.REQUEST);
-                findDealer.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
+                findDealer.addReceiver(BrokerRouter.brokerFor(carType));
+                MessageKind.tag(findDealer, MessageKind.BUYER_REQUEST);
                 findDealer.setContent(carType);
+                if (auction) {
+                    findDealer.addUserDefinedParameter(BrokerAgent.AUCTION_BUDGET, Integer.toString(reservePrice));
+                } else if (dealerCount > 1) {
+                    findDealer.addUserDefinedParameter(BrokerAgent.DEALER_COUNT, Integer.toString(dealerCount));
+                }
+                conversation = conversations.open("find");
+                requestedAt = System.currentTimeMillis();
+                conversations.prepare(findDealer, conversation);
                 myAgent.send(findDealer);
                 GUI.logInteraction(getLocalName(), "BrokerAgent", "REQUEST", carType);
-                
-                // Handle response
-                MessageTemplate mt = MessageTemplate.and(
-                    MessageTemplate.MatchSender(new AID("BrokerAgent", AID.ISLOCALNAME)),
-                    MessageTemplate.MatchPerformative(ACLMessage.INFORM)
-                );
-                ACLMessage response = myAgent.blockingReceive(mt, 30000);
-                handleBrokerResponse(response);
             } catch (Exception e) {
                 GUI.logMessage(getLocalName(), "⚠️ Broker contact error: " + e.getMessage());
             }
         }
-        
-        private void handleBrokerResponse(ACLMessage response) {
+
+        /**
+         * @return NEXT with the dealers set if the broker found any, else STOP
+         */
+        private int handleBrokerResponse(ACLMessage response) {
             try {
-                if (response != null) {
-                    String[] dealerInfo = response.getContent().split(",");
-                    if (dealerInfo.length >= 2) {
-                        AID dealer = new AID(dealerInfo[0], AID.ISLOCALNAME);
+                MessageCodec.Reader dealerInfo = MessageCodec.reader();
+                if (response.getPerformative() == ACLMessage.REFUSE) {
+                    GUI.logMessage(getLocalName(), "❌ No dealers available for " + carType);
+                } else if (auction && response.getPerformative() == ACLMessage.INFORM
+                        && dealerInfo.read(response, MessageCodec.DEAL_COMPLETED)) {
+                    awarded = true;
+                    GUI.logMessage(getLocalName(), 
+                        "🏆 Auction won: " + dealerInfo.string(0) + " @ $" + dealerInfo.integer(2));
+                    GUI.logInteraction("BrokerAgent", getLocalName(), 
+                        "INFORM", dealerInfo.string(0) + "," + dealerInfo.integer(2));
+                } else if (response.getPerformative() == ACLMessage.INFORM
+                        && (dealerInfo.read(response, MessageCodec.BEST_OFFER)
+                            || dealerInfo.read(response, MessageCodec.DEALER_MATCHES))) {
+                    for (int i = 0; i < dealerInfo.fieldCount(); i += 2) {
+                        AID dealer = new AID(dealerInfo.string(i), AID.ISLOCALNAME);
                         GUI.logMessage(getLocalName(), 
-                            "🤝 Connected with " + dealer.getLocalName() + " @ $" + dealerInfo[1]);
+                            "🤝 Connected with " + dealer.getLocalName() + " @ $" + dealerInfo.integer(i + 1));
                         // Log received dealer info
                         GUI.logInteraction("BrokerAgent", getLocalName(), 
-                            "INFORM", dealerInfo[0] + "," + dealerInfo[1]);
-                        myAgent.addBehaviour(new PriceNegotiator(dealer));
+                            "INFORM", dealer.getLocalName() + "," + dealerInfo.integer(i + 1));
+                        tracks.add(new DealerTrack(dealer, conversations.open("negotiate"), initialOffer));
                     }
+                    active.addAll(tracks);
+                    return active.isEmpty() ? STOP : NEXT;
                 }
             } catch (Exception e) {
                 GUI.logMessage(getLocalName(), "⚠️ Response handling error: " + e.getMessage());
                 myAgent.doDelete();
             }
-        }
-    }
-
-    /**
-     * Core negotiation behavior (cyclical until completion)
-     * Manages:
-     * - Offer/counter-offer exchange
-     * - Round counting
-     * - Response processing
-     */
-    private class PriceNegotiator extends Behaviour {
-        private final AID dealer;
-        private int currentOffer;
-        private boolean negotiationDone = false;
-
-        public PriceNegotiator(AID dealer) {
-            super();
-            this.dealer = dealer;
-            this.currentOffer = initialOffer;
-        }
-
-        /**
-         * Main negotiation loop
-         * - Sends offers
-         * - Processes dealer responses
-         * - Updates offer strategy
-         */
-        public void action() {
-            if (!negotiationDone) {
-                try {
-                    currentRound++;
-                    GUI.logMessage(getLocalName(), "🔄 ROUND " + currentRound);
-                    sendOffer();
-                    handleResponse();
-                } catch (Exception e) {
-                    GUI.logMessage(getLocalName(), "⚠️ Error: " + e.getMessage());
-                    negotiationDone = true;
-                }
-            }
+            return STOP;
         }
 
         /**
          * Sends current offer to dealer
-         * Uses PROPOSE message format: "CarType,Price"
+         * Uses PROPOSE message with a binary OFFER (car type, price)
          */
-        private void sendOffer() {
+        private void sendOffer(DealerTrack track) {
             ACLMessage offer = new ACLMessage(ACLMessage.PROPOSE);
-            offer.addReceiver(dealer);
-            offer.setContent(carType + "," + currentOffer);
+            offer.addReceiver(track.dealer);
+            offer.setByteSequenceContent(MessageCodec.offer(carType, track.currentOffer));
+            if (dealerCount > 1) {
+                offer.addUserDefinedParameter(BUYER_CONFIRMS, "true");
+            }
+            offer.addUserDefinedParameter(BrokerAgent.DEAL_ID, track.dealId);
+            conversations.prepare(offer, track.conversation);	// New reply-with per round
+            track.response = null;
             myAgent.send(offer);
-            GUI.logMessage(getLocalName(), "📤 OFFER: $" + currentOffer);
+            GUI.logMessage(getLocalName(), "📤 OFFER: $" + track.currentOffer +
+                (active.size() > 1 ? " to " + track.dealer.getLocalName() : ""));
             // Log interaction
-            GUI.logInteraction(getLocalName(), dealer.getLocalName(), 
-                "PROPOSE", carType + "," + currentOffer);
+            GUI.logInteraction(getLocalName(), track.dealer.getLocalName(), 
+                "PROPOSE", carType + "," + track.currentOffer);
         }
 
         /**
-         * Handles dealer responses with 15s timeout
-         * Processes: Accept/Reject/Counter offers
+         * Settles one round
+         * - Picks the cheapest accepted offer or acceptable counter-offer and cancels the rest
+         * - Otherwise keeps the dealers that got a new offer
+         * @return True to send another round of offers, false when the negotiation is over
          */
-        private void handleResponse() {
-            try {
-                MessageTemplate mtAccept = MessageTemplate.MatchPerformative(ACLMessage.ACCEPT_PROPOSAL);
-                MessageTemplate mtReject = MessageTemplate.MatchPerformative(ACLMessage.REJECT_PROPOSAL);
-                MessageTemplate mtCounter = MessageTemplate.MatchPerformative(ACLMessage.PROPOSE);
-                
-                MessageTemplate mt = MessageTemplate.and(
-                    MessageTemplate.MatchSender(dealer),
-                    MessageTemplate.or(mtAccept, MessageTemplate.or(mtReject, mtCounter))
-                );
-                
-                ACLMessage response = myAgent.blockingReceive(mt, 15000);
-                if (response != null) {
-                    processResponse(response);
-                } else {
-                    GUI.logMessage(getLocalName(), "⌛ Response timeout");
-                    negotiationDone = true;
+        private boolean decide() {
+            int lowestCounter = Integer.MAX_VALUE;
+            MessageCodec.Reader counter = MessageCodec.reader();
+            for (DealerTrack track : active) {
+                if (track.response != null && track.response.getPerformative() == ACLMessage.PROPOSE
+                        && counter.read(track.response, MessageCodec.OFFER)) {
+                    lowestCounter = Math.min(lowestCounter, counter.integer(1));
+                }
+            }
+            int ceiling = Math.min(reservePrice, lowestCounter);	// No point offering more than a rival asks
+
+            DealerTrack best = null;
+            int bestPrice = Integer.MAX_VALUE;
+            boolean bestAccepted = false;
+            for (Iterator<DealerTrack> it = active.iterator(); it.hasNext(); ) {
+                DealerTrack track = it.next();
+                int outcome = processResponse(track, ceiling);
+                if (outcome == DROPPED) {
+                    it.remove();
+                    continue;
+                }
+                int price = outcome == ACCEPTED ? track.currentOffer : track.counter;
+                if ((outcome == ACCEPTED || outcome == ACCEPTABLE) && price < bestPrice) {
+                    best = track;
+                    bestPrice = price;
+                    bestAccepted = outcome == ACCEPTED;
+                }
+            }
+            if (best == null) {
+                return !active.isEmpty();
+            }
+
+            winner = best;
+            if (bestAccepted) {
+                if (dealerCount > 1) {
+                    confirmDeal(best, bestPrice);	// Dealer left the confirmation to the buyer
+                }
+            } else {
+                best.currentOffer = bestPrice;
+                acceptOffer(best);
+            }
+            for (DealerTrack track : active) {
+                if (track != winner) {
+                    cancel(track);
                 }
-            } catch (Exception e) {
-                GUI.logMessage(getLocalName(), "⚠️ Response handling error: " + e.getMessage());
-                negotiationDone = true;
             }
+            active.clear();
+            return false;
         }
 
         /**
          * Processes different response types:
-         * - ACCEPT_PROPOSAL: Finalizes deal
-         * - REJECT_PROPOSAL: Ends negotiation
+         * - ACCEPT_PROPOSAL: Deal at the current offer
+         * - REJECT_PROPOSAL: Ends negotiation with the dealer
          * - PROPOSE: Processes counter-offer
+         * - No response: Dealer timed out
+         * @param ceiling Highest price worth offering this dealer
+         * @return DROPPED, CONTINUE, ACCEPTED or ACCEPTABLE
          */
-        private void processResponse(ACLMessage response) {
+        private int processResponse(DealerTrack track, int ceiling) {
+            ACLMessage response = track.response;
+            AID dealer = track.dealer;
             try {
-                if (response.getPerformative() == ACLMessage.ACCEPT_PROPOSAL) {
-                    negotiationComplete = true;
-                    negotiationDone = true;
-                    GUI.logMessage(getLocalName(), "✅ Deal accepted at $" + currentOffer);
+                if (response == null) {
+                    GUI.logMessage(getLocalName(), "⌛ Response timeout" +
+                        (tracks.size() > 1 ? " from " + dealer.getLocalName() : ""));
+                    return DROPPED;
+                }
+                else if (response.getPerformative() == ACLMessage.ACCEPT_PROPOSAL) {
+                    GUI.logMessage(getLocalName(), "✅ Deal accepted at $" + track.currentOffer +
+                        (tracks.size() > 1 ? " by " + dealer.getLocalName() : ""));
                     
                     // Log acceptance
                     GUI.logInteraction(dealer.getLocalName(), getLocalName(), 
-                        "ACCEPT", carType + "," + currentOffer);
+                        "ACCEPT", carType + "," + track.currentOffer);
+                    return ACCEPTED;
                 } 
                 else if (response.getPerformative() == ACLMessage.REJECT_PROPOSAL) {
-                    negotiationDone = true;
                     GUI.logMessage(getLocalName(), "❌ Deal rejected");
                     
                  // Log rejection
                     GUI.logInteraction(dealer.getLocalName(), getLocalName(), 
                         "REJECT", carType);
+                    return DROPPED;
+                }
+                else if (response.getPerformative() != ACLMessage.PROPOSE) {
+                    GUI.logMessage(getLocalName(), "❌ Dealer ended negotiation (" +
+                        ACLMessage.getPerformative(response.getPerformative()) +
+                        (DealerAgent.BUSY.equals(response.getContent()) ? ", busy" : "") + ")");
+                    return DROPPED;
                 }
                 else {
-                    String[] parts = response.getContent().split(",");
-                    int dealerCounter = Integer.parseInt(parts[1]);
-                    GUI.logMessage(getLocalName(), "📥 COUNTER: $" + dealerCounter);
+                    MessageCodec.Reader counter = MessageCodec.reader();
+                    if (!counter.read(response, MessageCodec.OFFER)) {
+                        throw new IllegalArgumentException("Malformed counter-offer: " + MessageCodec.describe(response));
+                    }
+                    int dealerCounter = counter.integer(1);
+                    int previousCounter = track.counter;
+                    track.counter = dealerCounter;
+                    GUI.logMessage(getLocalName(), "📥 COUNTER: $" + dealerCounter +
+                        (tracks.size() > 1 ? " from " + dealer.getLocalName() : ""));
                     
                     // Log counter offer
                     GUI.logInteraction(dealer.getLocalName(), getLocalName(), 
                         "PROPOSE", carType + "," + dealerCounter);
 
-                    if (dealerCounter <= reservePrice) {
-                        if (currentRound < minRounds) {
-                            currentOffer = (int)(dealerCounter * 0.97);
-                            GUI.logMessage(getLocalName(), 
-                                "💡 New offer: $" + currentOffer + " (97% of counter)");
-                        } else {
-                            acceptOffer(response);
-                        }
-                    } else {
-                        currentOffer = Math.min(currentOffer + (dealerCounter - currentOffer)/2, reservePrice);
-                        if (currentOffer >= reservePrice) {
-                            GUI.logMessage(getLocalName(), "⛔ Max budget reached");
-                            negotiationDone = true;
-                        }
+                    int next = strategy.respond(currentRound, track.currentOffer, dealerCounter,
+                        previousCounter, reservePrice, ceiling);
+                    if (next == BuyerStrategy.ACCEPT && dealerCounter <= reservePrice) {
+                        return ACCEPTABLE;
+                    }
+                    if (next < 0) {
+                        GUI.logMessage(getLocalName(), ceiling < reservePrice
+                            ? "⛔ " + dealer.getLocalName() + " asks more than a rival's $" + ceiling
+                            : "⛔ Max budget reached");
+                        return DROPPED;
                     }
+                    track.currentOffer = Math.min(next, ceiling);
+                    GUI.logMessage(getLocalName(), "💡 New offer: $" + track.currentOffer);
+                    return CONTINUE;
                 }
             } catch (Exception e) {
                 GUI.logMessage(getLocalName(), "⚠️ Offer processing error: " + e.getMessage());
-                negotiationDone = true;
+                return DROPPED;
             }
         }
 
@@ -233,39 +497,82 @@ public class BuyerAgent extends Agent {
          * - Notifies BrokerAgent
          * - Updates GUI status
          */
-        private void acceptOffer(ACLMessage response) {
-            ACLMessage accept = response.createReply();
+        private void acceptOffer(DealerTrack track) {
+            ACLMessage accept = track.response.createReply();
             accept.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
             myAgent.send(accept);
-            negotiationComplete = true;
-            negotiationDone = true;
             GUI.logMessage(getLocalName(), "✅ Deal accepted!");
-            
-            // Notify BrokerAgent of the successful deal
+            confirmDeal(track, track.currentOffer);
+        }
+
+        /**
+         * Notifies BrokerAgent of the successful deal
+         */
+        private void confirmDeal(DealerTrack track, int price) {
             ACLMessage brokerMsg = new ACLMessage(ACLMessage.INFORM);
-            brokerMsg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-            brokerMsg.setContent("DEAL_CONFIRMED," + getLocalName() + "," + dealer.getLocalName() + "," + carType + "," + currentOffer);
+            brokerMsg.addReceiver(BrokerRouter.brokerFor(carType));
+            MessageKind.tag(brokerMsg, MessageKind.DEAL_CONFIRMED);
+            brokerMsg.setByteSequenceContent(MessageCodec.dealConfirmed(
+                getLocalName(), track.dealer.getLocalName(), carType, price));
+            brokerMsg.addUserDefinedParameter(BrokerAgent.DEAL_ID, track.dealId);
             send(brokerMsg);
         }
 
-        public boolean done() {
-            if (negotiationDone) {
-                if (!negotiationComplete) {
-                    // Notify broker of failure
-                    ACLMessage failure = new ACLMessage(ACLMessage.FAILURE);
-                    failure.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                    failure.setContent("NEGOTIATION_FAILED," + 
-                        getLocalName() + "," + 
-                        dealer.getLocalName() + "," + 
-                        carType);
-                    myAgent.send(failure);
-                    
-                    GUI.logMessage(getLocalName(), "⚠️ Negotiation failed");
+        /**
+         * Calls off the negotiation with a dealer that was not picked
+         */
+        private void cancel(DealerTrack track) {
+            ACLMessage cancel = track.response.createReply();
+            cancel.setPerformative(ACLMessage.CANCEL);
+            cancel.setContent(carType);
+            myAgent.send(cancel);
+            GUI.logInteraction(getLocalName(), track.dealer.getLocalName(), "CANCEL", carType);
+        }
+
+        /**
+         * Ends the negotiation
+         * - Without a dealer (none found, no broker answer) the agent stays up
+         * - After talking to dealers: reports every dealer but the winner to the
+         *   broker (releasing its lease) and stops the agent
+         */
+        private void finish() {
+            if (winner != null || awarded) {
+                long now = System.currentTimeMillis();
+                DealMetrics.dealt(mode(), requestedAt, now);
+                GUI.logMessage(getLocalName(), "⏱️ Deal in " + (now - requestedAt) + "ms (" + mode() + ")");
+            } else {
+                DealMetrics.failed(mode(), requestedAt);
+            }
+            if (tracks.isEmpty()) {
+                if (awarded) {
+                    myAgent.doDelete();
                 }
-                myAgent.doDelete();
-                return true;
+                return;
             }
-            return false;
+            for (DealerTrack track : tracks) {
+                conversations.close(track.conversation);
+                if (track == winner) {
+                    continue;
+                }
+                // Notify broker of failure
+                ACLMessage failure = new ACLMessage(ACLMessage.FAILURE);
+                failure.addReceiver(BrokerRouter.brokerFor(carType));
+                MessageKind.tag(failure, MessageKind.NEGOTIATION_FAILED);
+                failure.setByteSequenceContent(MessageCodec.negotiationFailed(
+                    getLocalName(), track.dealer.getLocalName(), carType));
+                myAgent.send(failure);
+            }
+            if (winner == null) {
+                GUI.logMessage(getLocalName(), "⚠️ Negotiation failed");
+            }
+            myAgent.doDelete();
+        }
+
+        /**
+         * @return DealMetrics label: "auction", "parallel" or "negotiated"
+         */
+        private String mode() {
+            return auction ? "auction" : dealerCount > 1 ? "parallel" : "negotiated";
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package IntelligentProject;
+
+/**
+ * Buyer side of a price negotiation
+ * - Answers a dealer's counter-offer with a new offer, ACCEPT or WALK_AWAY
+ * - Independent of JADE: all state of the negotiation is passed in, so one
+ *   instance serves every dealer and can run in plain Java (e.g. a tournament)
+ * - Implementations precompute their concession schedules, so respond() does
+ *   no allocation and no floating-point work
+ * - Built-in strategies: see Strategies
+ */
+public interface BuyerStrategy {
+    int ACCEPT = -1;		// Take the dealer's counter-offer
+    int WALK_AWAY = -2;		// End the negotiation with this dealer
+
+    /**
+     * Reaction to one counter-offer
+     * @param round Round number, starting at 1
+     * @param offer Buyer's offer this round
+     * @param counter Dealer's counter-offer this round
+     * @param previousCounter Dealer's counter-offer last round (0 in round 1)
+     * @param reservePrice Buyer's budget; a counter above it must not be accepted
+     * @param ceiling Highest price worth offering this dealer (at most reservePrice)
+     * @return Next offer (at most ceiling), ACCEPT or WALK_AWAY
+     */
+    int respond(int round, int offer, int counter, int previousCounter, int reservePrice, int ceiling);
+
+    /**
+     * @return Name the strategy is selected by
+     */
+    String name();
+}
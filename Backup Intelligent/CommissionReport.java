@@ -0,0 +1,75 @@
+package IntelligentProject;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Commission report from broker deal journals
+ * - Streams each journal with DealJournal.Reader (one small buffer, any file size)
+ * - Totals per journal and overall: deals, automated / manual / total commission
+ * - Per-dealer commission and deal count across all journals
+ * - Journals of several broker shards can be passed together
+ *
+ * Usage: java IntelligentProject.CommissionReport journal [journal...]
+ */
+public class CommissionReport {
+
+    // Running totals for one journal, dealer or the whole report
+    private static final class Totals {
+        long deals;
+        long automated;
+        long manual;
+
+        void add(DealJournal.Reader deal) {
+            deals++;
+            if (deal.manual()) {
+                manual += deal.commission();
+            } else {
+                automated += deal.commission();
+            }
+        }
+
+        String format(String label) {
+            return String.format("%-32s %8d %12d %12d %12d", label, deals, automated, manual, automated + manual);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: java IntelligentProject.CommissionReport journal [journal...]");
+            return;
+        }
+        Totals overall = new Totals();
+        Map<String, Totals> byDealer = new TreeMap<>();
+        String header = String.format("%-32s %8s %12s %12s %12s", "", "deals", "automated", "manual", "total");
+
+        System.out.println(header);
+        for (String arg : args) {
+            Path path = Paths.get(arg);
+            Totals journal = new Totals();
+            try (DealJournal.Reader deal = DealJournal.read(path)) {
+                while (deal.next()) {
+                    journal.add(deal);
+                    overall.add(deal);
+                    String dealer = deal.dealer();
+                    Totals totals = byDealer.get(dealer);
+                    if (totals == null) {
+                        totals = new Totals();
+                        byDealer.put(dealer, totals);
+                    }
+                    totals.add(deal);
+                }
+            }
+            System.out.println(journal.format(path.getFileName().toString()));
+        }
+        System.out.println(overall.format("All journals (RM)"));
+
+        System.out.println();
+        System.out.println(header);
+        for (Map.Entry<String, Totals> dealer : byDealer.entrySet()) {
+            System.out.println(dealer.getValue().format(dealer.getKey()));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package IntelligentProject;
+
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Routes replies to open conversations by conversation-id
+ * - Requests are stamped with a conversation-id and a fresh reply-with per round
+ * - The mailbox is drained from its head (no template), and each message is filed
+ *   into its conversation's bucket, so finding a reply costs O(1) per message
+ *   instead of a template scan over the whole mailbox
+ * - Replies whose in-reply-to names an earlier round are dropped as stale
+ * - Late replies to a conversation this router opened and has since closed are
+ *   dropped and logged (they must not be mistaken for new traffic)
+ * - Other messages outside any open conversation are kept for receiveUnrouted();
+ *   beyond MAX_UNROUTED the oldest is dropped and logged
+ * - Meant for agents that pull replies from inside their own behaviours (the
+ *   BuyerAgent FSM); not thread-safe
+ * - PendingReplies does the same job push-style for agents that handle every
+ *   message in one MessageDispatcher (manual agents): it hands each reply to a
+ *   continuation and times requests out with a WakerBehaviour. Both use
+ *   "owner-purpose-N" conversation-ids, reply-with values prefixed by the
+ *   conversation-id, and drop late replies instead of passing them on
+ */
+public class ConversationRouter {
+
+    /**
+     * Source of incoming messages (the agent's mailbox)
+     */
+    public interface Mailbox {
+        /** @return Head message, or null if empty */
+        ACLMessage poll();
+
+        /** @return Head message, waiting up to timeoutMs, or null on timeout */
+        ACLMessage poll(long timeoutMs);
+    }
+
+    // Replies waiting for one conversation
+    private static final class Conversation {
+        final ArrayDeque<ACLMessage> replies = new ArrayDeque<>();
+        String expectedReply;	// reply-with of the latest request (null = accept any)
+    }
+
+    private static final int MAX_UNROUTED = 1024;
+
+    private final Mailbox mailbox;
+    private final String owner;
+    private final Map<String, Conversation> open = new HashMap<>();
+    private final ArrayDeque<ACLMessage> unrouted = new ArrayDeque<>();
+    private final String prefix;	// Start of every conversation-id this router opens
+    private long sequence = 0;
+    private long stale = 0;
+    private long late = 0;
+    private long overflow = 0;
+    private Consumer<String> dropLog = text -> { };
+
+    /**
+     * @param mailbox Message source
+     * @param owner Prefix for generated IDs (usually the agent's local name)
+     */
+    public ConversationRouter(Mailbox mailbox, String owner) {
+        this.mailbox = mailbox;
+        this.owner = owner;
+        this.prefix = owner + "-";
+    }
+
+    /**
+     * @param dropLog Receives one line per late or overflowing message (default: none)
+     * @return This router
+     */
+    public ConversationRouter onDrop(Consumer<String> dropLog) {
+        this.dropLog = dropLog;
+        return this;
+    }
+
+    /**
+     * @param agent Agent whose mailbox is drained (only call from its own thread)
+     * @return Router reading the agent's mailbox
+     */
+    public static ConversationRouter forAgent(final Agent agent) {
+        return new ConversationRouter(new Mailbox() {
+            @Override
+            public ACLMessage poll() {
+                return agent.receive();
+            }
+
+            @Override
+            public ACLMessage poll(long timeoutMs) {
+                return agent.blockingReceive(timeoutMs);
+            }
+        }, agent.getLocalName()).onDrop(text -> GUI.logMessage(agent.getLocalName(), text));
+    }
+
+    /**
+     * Opens a conversation
+     * @param purpose Short label included in the ID (e.g. "find", "negotiate")
+     * @return New conversation-id
+     */
+    public String open(String purpose) {
+        String id = owner + "-" + purpose + "-" + (++sequence);
+        open.put(id, new Conversation());
+        return id;
+    }
+
+    /**
+     * Stamps an outgoing request of an open conversation
+     * - Later replies must answer this request's reply-with
+     * @param request Outgoing request
+     * @param conversationId ID returned by open()
+     * @return The reply-with value set on the request
+     */
+    public String prepare(ACLMessage request, String conversationId) {
+        String replyWith = conversationId + "." + (++sequence);
+        request.setConversationId(conversationId);
+        request.setReplyWith(replyWith);
+        Conversation conversation = open.get(conversationId);
+        if (conversation != null) {
+            conversation.expectedReply = replyWith;
+        }
+        return replyWith;
+    }
+
+    /**
+     * Takes the next reply of a conversation without waiting
+     * @param conversationId Open conversation
+     * @return Reply, or null if none has arrived
+     */
+    public ACLMessage receive(String conversationId) {
+        Conversation conversation = open.get(conversationId);
+        if (conversation == null) {
+            return null;
+        }
+        ACLMessage reply = take(conversation);
+        if (reply != null) {
+            return reply;
+        }
+        ACLMessage msg;
+        while ((msg = mailbox.poll()) != null) {
+            if (route(msg) == conversation && (reply = take(conversation)) != null) {
+                return reply;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the next reply of a conversation
+     * @param conversationId Open conversation
+     * @param timeoutMs Longest wait
+     * @return Reply, or null on timeout
+     */
+    public ACLMessage blockingReceive(String conversationId, long timeoutMs) {
+        ACLMessage reply = receive(conversationId);
+        if (reply != null || !open.containsKey(conversationId)) {
+            return reply;
+        }
+        Conversation conversation = open.get(conversationId);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (remaining > 0) {
+            ACLMessage msg = mailbox.poll(remaining);
+            if (msg != null && route(msg) == conversation && (reply = take(conversation)) != null) {
+                return reply;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return null;
+    }
+
+    /**
+     * @return Oldest message that belongs to no open conversation, or null
+     */
+    public ACLMessage receiveUnrouted() {
+        ACLMessage msg;
+        while ((msg = mailbox.poll()) != null) {
+            route(msg);
+        }
+        return unrouted.poll();
+    }
+
+    /**
+     * Closes a conversation; its late replies are dropped
+     * @param conversationId Conversation to close
+     */
+    public void close(String conversationId) {
+        open.remove(conversationId);
+    }
+
+    /**
+     * @return Replies dropped because they answered an earlier round
+     */
+    public long staleReplies() {
+        return stale;
+    }
+
+    /**
+     * @return Replies dropped because their conversation was already closed
+     */
+    public long lateReplies() {
+        return late;
+    }
+
+    /**
+     * @return Unrouted messages dropped beyond MAX_UNROUTED
+     */
+    public long overflowed() {
+        return overflow;
+    }
+
+    // Files a message into its conversation's bucket
+    private Conversation route(ACLMessage msg) {
+        String id = msg.getConversationId();
+        Conversation conversation = id == null ? null : open.get(id);
+        if (conversation == null) {
+            if (id != null && id.startsWith(prefix)) {
+                late++;
+                dropLog.accept("⏱️ Late reply dropped (" + id + " closed)" + from(msg));
+                return null;
+            }
+            if (unrouted.size() == MAX_UNROUTED) {
+                overflow++;
+                dropLog.accept("⚠️ Unrouted message dropped (over " + MAX_UNROUTED + ")" + from(unrouted.poll()));
+            }
+            unrouted.add(msg);
+            return null;
+        }
+        conversation.replies.add(msg);
+        return conversation;
+    }
+
+    private static String from(ACLMessage msg) {
+        return msg.getSender() == null ? "" : " from " + msg.getSender().getLocalName();
+    }
+
+    // Next reply that answers the latest request, dropping stale ones
+    private ACLMessage take(Conversation conversation) {
+        ACLMessage reply;
+        while ((reply = conversation.replies.poll()) != null) {
+            String inReplyTo = reply.getInReplyTo();
+            if (conversation.expectedReply == null || inReplyTo == null
+                    || inReplyTo.equals(conversation.expectedReply)) {
+                return reply;
+            }
+            stale++;
+        }
+        return null;
+    }
+}
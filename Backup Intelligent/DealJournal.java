@@ -0,0 +1,325 @@
+package IntelligentProject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the deals booked by a BrokerAgent
+ * - Fixed 128-byte records after a 128-byte header, written through a
+ *   memory-mapped window that moves forward WINDOW_BYTES at a time
+ * - Group commit: appends only write to the mapping; force() runs once
+ *   groupSize records are pending or when the broker calls sync()
+ *   (a JVM crash loses nothing, a power cut at most the unforced records)
+ * - Every record carries a CRC32; opening the journal scans to the first
+ *   invalid record (torn write or unused space), cuts the file there and
+ *   appends after it; the same scan replays the records to the caller
+ * - A missing, empty or half-created file (shorter than the header) starts
+ *   a new journal
+ * - Reader streams the records through a small reused buffer, so replays
+ *   and reports never hold the journal in the heap
+ * - Agent names and car types longer than 31 UTF-8 bytes are cut
+ * - Thread-safe (append, sync and close synchronize on the journal)
+ *
+ * Record layout: deal ID fingerprint (8), time (8), price (4), commission (4),
+ * flags (1), buyer / dealer / car type (32 each: length + bytes), padding (3), CRC32 (4)
+ */
+public class DealJournal implements Closeable {
+    public static final int RECORD_BYTES = 128;
+    private static final int HEADER_BYTES = RECORD_BYTES;
+    private static final long MAGIC = 0x4445414c4a524e31L;	// "DEALJRN1"
+    private static final int VERSION = 1;
+    private static final int WINDOW_BYTES = RECORD_BYTES * 8192;	// 1 MB mapped at a time
+    private static final int NAME_BYTES = 32;
+    private static final int CRC_OFFSET = RECORD_BYTES - 4;
+    private static final byte VALID = (byte) 0x80;	// Set on every written record
+    private static final byte MANUAL = 0x01;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int groupSize;
+    private MappedByteBuffer window;	// Covers [windowStart, windowStart + WINDOW_BYTES)
+    private long windowStart;
+    private long position;				// File offset of the next record
+    private long records;				// Valid records in the file
+    private int pending = 0;			// Appended since the last force
+    private long forces = 0;
+    private final byte[] scratch = new byte[RECORD_BYTES];
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Opens (or creates) a journal and positions it after the last valid record
+     * @param path Journal file
+     * @param groupSize Appends per force (1 = force every deal)
+     * @throws IOException If the file cannot be opened or is not a deal journal
+     */
+    public DealJournal(Path path, int groupSize) throws IOException {
+        this(path, groupSize, null);
+    }
+
+    /**
+     * Opens (or creates) a journal, replaying its records while finding the end
+     * @param path Journal file
+     * @param groupSize Appends per force (1 = force every deal)
+     * @param replay Called once per valid record, oldest first (may be null)
+     * @throws IOException If the file cannot be opened or is not a deal journal
+     */
+    public DealJournal(Path path, int groupSize, Consumer<Reader> replay) throws IOException {
+        this.path = path;
+        this.groupSize = Math.max(1, groupSize);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                writeHeader();
+            }
+            try (Reader reader = new Reader(channel)) {
+                while (reader.next()) {
+                    records++;
+                    if (replay != null) {
+                        replay.accept(reader);
+                    }
+                }
+            }
+            position = HEADER_BYTES + records * RECORD_BYTES;
+            channel.truncate(position);	// Drop a torn tail so it cannot resurface later
+            map(position);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends one deal; forced to disk with the rest of its group
+     * @param fingerprint Deal ID fingerprint (see DealLedger)
+     * @param time Booking time in milliseconds
+     */
+    public synchronized void append(long fingerprint, String buyer, String dealer, String carType,
+                                    int price, int commission, boolean manual, long time) throws IOException {
+        if (position + RECORD_BYTES > windowStart + WINDOW_BYTES) {
+            force();
+            map(position);
+        }
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        Arrays.fill(scratch, (byte) 0);
+        record.putLong(fingerprint).putLong(time).putInt(price).putInt(commission)
+              .put((byte) (VALID | (manual ? MANUAL : 0)));
+        putName(record, buyer);
+        putName(record, dealer);
+        putName(record, carType);
+        crc.reset();
+        crc.update(scratch, 0, CRC_OFFSET);
+        record.putInt(CRC_OFFSET, (int) crc.getValue());
+
+        window.position((int) (position - windowStart));
+        window.put(scratch);
+        position += RECORD_BYTES;
+        records++;
+        if (++pending >= groupSize) {
+            force();
+        }
+    }
+
+    /**
+     * Forces pending appends to disk (group commit timer)
+     */
+    public synchronized void sync() {
+        if (pending > 0) {
+            force();
+        }
+    }
+
+    public synchronized long size() {
+        return records;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return Summary for logs
+     */
+    public synchronized String stats() {
+        return records + " records (" + (position / 1024) + " KB), " + forces + " forces, " +
+            pending + " pending, group " + groupSize;
+    }
+
+    /**
+     * Forces pending appends and closes the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    /**
+     * Opens a journal file for reading
+     * @param path Journal file
+     * @return Reader positioned before the first record
+     * @throws IOException If the file cannot be read or is not a deal journal
+     */
+    public static Reader read(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new Reader(channel, true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void force() {
+        window.force();
+        pending = 0;
+        forces++;
+    }
+
+    private void map(long offset) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, offset, WINDOW_BYTES);
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(MAGIC).putInt(VERSION).putInt(RECORD_BYTES);
+        header.rewind();	// Whole header slot, so records start at HEADER_BYTES
+        channel.truncate(0);
+        channel.write(header, 0);
+        channel.force(true);
+    }
+
+    // Length byte, then up to NAME_BYTES - 1 bytes of UTF-8 (cut on a character boundary)
+    private static void putName(ByteBuffer record, String name) {
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, NAME_BYTES - 1);
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        int start = record.position();
+        record.put((byte) length).put(bytes, 0, length);
+        record.position(start + NAME_BYTES);
+    }
+
+    /**
+     * Streams the valid records of a journal, oldest first
+     * - Reads through one reused 64 KB buffer; accessors refer to the record
+     *   returned by the last next() and decode names only when asked
+     * - Stops at the first record that fails its checksum
+     */
+    public static final class Reader implements Closeable {
+        private static final int BUFFER_BYTES = RECORD_BYTES * 512;
+        private final FileChannel channel;
+        private final boolean owned;	// Close the channel with the reader
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        private long offset = HEADER_BYTES;	// File offset of the next unread byte
+        private int record = -RECORD_BYTES;	// Current record's position in the buffer
+        private boolean done = false;
+
+        Reader(FileChannel channel) throws IOException {
+            this(channel, false);
+        }
+
+        private Reader(FileChannel channel, boolean owned) throws IOException {
+            this.channel = channel;
+            this.owned = owned;
+            ByteBuffer header = ByteBuffer.allocate(16);
+            channel.read(header, 0);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION || header.getInt(12) != RECORD_BYTES) {
+                throw new IOException("Not a deal journal (version " + VERSION + ")");
+            }
+            buffer.limit(0);
+        }
+
+        /**
+         * Moves to the next record
+         * @return False at the end of the journal or at a torn record
+         */
+        public boolean next() throws IOException {
+            if (done) return false;
+            record += RECORD_BYTES;
+            if (record + RECORD_BYTES > buffer.limit() && !fill()) {
+                done = true;
+                return false;
+            }
+            crc.reset();
+            crc.update(buffer.array(), record, CRC_OFFSET);
+            if ((buffer.get(record + 24) & VALID) == 0 || buffer.getInt(record + CRC_OFFSET) != (int) crc.getValue()) {
+                done = true;
+                return false;
+            }
+            return true;
+        }
+
+        public long fingerprint() {
+            return buffer.getLong(record);
+        }
+
+        public long time() {
+            return buffer.getLong(record + 8);
+        }
+
+        public int price() {
+            return buffer.getInt(record + 16);
+        }
+
+        public int commission() {
+            return buffer.getInt(record + 20);
+        }
+
+        public boolean manual() {
+            return (buffer.get(record + 24) & MANUAL) != 0;
+        }
+
+        public String buyer() {
+            return name(25);
+        }
+
+        public String dealer() {
+            return name(25 + NAME_BYTES);
+        }
+
+        public String carType() {
+            return name(25 + 2 * NAME_BYTES);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (owned) {
+                channel.close();
+            }
+        }
+
+        private String name(int field) {
+            int at = record + field;
+            return new String(buffer.array(), at + 1, buffer.get(at) & 0xFF, StandardCharsets.UTF_8);
+        }
+
+        // Refills the buffer with whole records; false if none are left
+        private boolean fill() throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, offset);
+                if (read < 0) break;
+                offset += read;
+            }
+            int filled = buffer.position();
+            int whole = filled - filled % RECORD_BYTES;
+            offset -= filled - whole;	// Reread a partial record next time
+            buffer.limit(whole);
+            record = 0;
+            return buffer.limit() > 0;
+        }
+    }
+}
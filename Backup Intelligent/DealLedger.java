@@ -0,0 +1,207 @@
+package IntelligentProject;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Deals booked by a BrokerAgent, one record per deal ID
+ * - Several parties can confirm the same deal (dealer and buyer of an automated
+ *   negotiation, GUI and agent of a manual one); only the first confirmation of
+ *   an ID is booked, later ones are counted as duplicates
+ * - Deal IDs come from newId() where the deal starts (buyer's negotiation with
+ *   one dealer, auction award, opening of a manual negotiation) and travel with
+ *   every message about it; they are unique across runs, so replayed IDs from
+ *   the journal never collide with new deals
+ * - IDs are kept as 64-bit fingerprints in an open-addressing table (O(1) check
+ *   and insert, no strings retained)
+ * - Records are parallel primitive arrays in booking order: agent and car type
+ *   names as SymbolTable IDs, price, commission, time and a manual flag
+ * - Thread-safe (methods synchronize on the ledger)
+ */
+public class DealLedger {
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * One booked deal (built on demand from the record arrays)
+     */
+    public static final class Deal {
+        public final String buyer;
+        public final String dealer;
+        public final String carType;
+        public final int price;
+        public final int commission;
+        public final boolean manual;
+        public final long time;			// Booking time in milliseconds
+
+        Deal(String buyer, String dealer, String carType, int price, int commission, boolean manual, long time) {
+            this.buyer = buyer;
+            this.dealer = dealer;
+            this.carType = carType;
+            this.price = price;
+            this.commission = commission;
+            this.manual = manual;
+            this.time = time;
+        }
+    }
+
+    private final SymbolTable agents = new SymbolTable(false);
+    private final SymbolTable carTypes = SymbolTable.forCarTypes();
+
+    // Fingerprint set (0 = free slot), at most half full
+    private long[] slots = new long[INITIAL_CAPACITY * 2];
+
+    // Records, index = booking order
+    private int[] buyers = new int[INITIAL_CAPACITY];
+    private int[] dealers = new int[INITIAL_CAPACITY];
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] prices = new int[INITIAL_CAPACITY];
+    private int[] commissions = new int[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private boolean[] manual = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+    private long duplicates = 0;
+
+    /**
+     * @return A new deal ID (random UUID, unique across agents and runs)
+     */
+    public static String newId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Books a deal unless its ID was booked before
+     * @param dealId Deal ID (see newId())
+     * @return True if booked, false for a duplicate confirmation
+     */
+    public boolean record(String dealId, String buyer, String dealer, String carType,
+                          int price, int commission, boolean isManual, long time) {
+        return record(fingerprint(dealId), buyer, dealer, carType, price, commission, isManual, time);
+    }
+
+    /**
+     * Books a deal by its ID fingerprint (journal replay)
+     * @param fingerprint fingerprint() of the deal ID
+     * @return True if booked, false for a duplicate
+     */
+    public synchronized boolean record(long fingerprint, String buyer, String dealer, String carType,
+                                       int price, int commission, boolean isManual, long time) {
+        if (!addFingerprint(fingerprint)) {
+            duplicates++;
+            return false;
+        }
+        if (size == prices.length) {
+            grow();
+        }
+        buyers[size] = agents.intern(buyer);
+        dealers[size] = agents.intern(dealer);
+        types[size] = carTypes.intern(carType);
+        prices[size] = price;
+        commissions[size] = commission;
+        times[size] = time;
+        manual[size] = isManual;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param dealId Deal ID
+     * @return True if a deal with this ID was booked
+     */
+    public synchronized boolean contains(String dealId) {
+        long fp = fingerprint(dealId);
+        for (int i = slot(fp); slots[i] != 0; i = (i + 1) & (slots.length - 1)) {
+            if (slots[i] == fp) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param index Booking order, from 0 to size() - 1
+     * @return The deal booked at that position
+     */
+    public synchronized Deal get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Deal " + index + " of " + size);
+        }
+        return new Deal(agents.nameOf(buyers[index]), agents.nameOf(dealers[index]),
+            carTypes.nameOf(types[index]), prices[index], commissions[index], manual[index], times[index]);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return Summary for logs
+     */
+    public synchronized String stats() {
+        long bytes = slots.length * 8L + prices.length * (4L * 5 + 8 + 1);
+        return size + " deals, " + duplicates + " duplicate confirmations ignored, ~" +
+            (bytes + 1023) / 1024 + " KB";
+    }
+
+    // Inserts a fingerprint; false if it was already present
+    private boolean addFingerprint(long fp) {
+        int mask = slots.length - 1;
+        int i = slot(fp);
+        while (slots[i] != 0) {
+            if (slots[i] == fp) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = fp;
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    private int slot(long fp) {
+        return (int) (fp ^ (fp >>> 32)) & (slots.length - 1);
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        for (long fp : old) {
+            if (fp == 0) continue;
+            int i = slot(fp);
+            while (slots[i] != 0) {
+                i = (i + 1) & (capacity - 1);
+            }
+            slots[i] = fp;
+        }
+    }
+
+    private void grow() {
+        int capacity = prices.length * 2;
+        buyers = Arrays.copyOf(buyers, capacity);
+        dealers = Arrays.copyOf(dealers, capacity);
+        types = Arrays.copyOf(types, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        commissions = Arrays.copyOf(commissions, capacity);
+        times = Arrays.copyOf(times, capacity);
+        manual = Arrays.copyOf(manual, capacity);
+    }
+
+    /**
+     * 64-bit fingerprint of a deal ID (FNV-1a, then a final avalanche mix)
+     * - Never 0, which marks a free slot
+     */
+    public static long fingerprint(String dealId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < dealId.length(); i++) {
+            h ^= dealId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
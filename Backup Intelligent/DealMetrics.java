@@ -0,0 +1,82 @@
+package IntelligentProject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Deal throughput and time-to-deal per negotiation mode
+ * - Buyers record every outcome with the time they first asked the broker, so
+ *   "negotiated", "parallel" and "auction" buyers are measured the same way
+ * - Deals per second are counted from the mode's first request to its latest deal
+ * - Shared by every agent of the platform (agents run in one JVM); thread-safe
+ */
+public final class DealMetrics {
+
+    // Totals for one mode
+    private static final class Mode {
+        long firstStart = Long.MAX_VALUE;	// Earliest request in milliseconds
+        long lastDeal;						// Latest deal in milliseconds
+        int deals;
+        int failures;
+        long totalMs;						// Sum of time-to-deal
+        long maxMs;
+    }
+
+    private static final Map<String, Mode> MODES = new LinkedHashMap<>();
+
+    private DealMetrics() {
+    }
+
+    /**
+     * Records a completed deal
+     * @param mode Negotiation mode label
+     * @param startMillis When the buyer asked the broker
+     * @param endMillis When the deal was made
+     */
+    public static synchronized void dealt(String mode, long startMillis, long endMillis) {
+        Mode m = mode(mode, startMillis);
+        long elapsed = endMillis - startMillis;
+        m.deals++;
+        m.totalMs += elapsed;
+        m.maxMs = Math.max(m.maxMs, elapsed);
+        m.lastDeal = Math.max(m.lastDeal, endMillis);
+    }
+
+    /**
+     * Records a buyer that ended without a deal
+     * @param mode Negotiation mode label
+     * @param startMillis When the buyer asked the broker
+     */
+    public static synchronized void failed(String mode, long startMillis) {
+        mode(mode, startMillis).failures++;
+    }
+
+    /**
+     * @return One line per mode: deals, failures, deals/s, average and max time-to-deal
+     */
+    public static synchronized String summary() {
+        if (MODES.isEmpty()) {
+            return "no deals recorded";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Mode> entry : MODES.entrySet()) {
+            Mode m = entry.getValue();
+            double seconds = m.deals == 0 ? 0 : Math.max(1, m.lastDeal - m.firstStart) / 1000.0;
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(String.format("%s: %d deals, %d failed, %.2f deals/s, time-to-deal avg %d ms, max %d ms",
+                entry.getKey(), m.deals, m.failures, seconds == 0 ? 0 : m.deals / seconds,
+                m.deals == 0 ? 0 : m.totalMs / m.deals, m.maxMs));
+        }
+        return sb.toString();
+    }
+
+    private static Mode mode(String mode, long startMillis) {
+        Mode m = MODES.get(mode);
+        if (m == null) {
+            m = new Mode();
+            MODES.put(mode, m);
+        }
+        m.firstStart = Math.min(m.firstStart, startMillis);
+        return m;
+    }
+}
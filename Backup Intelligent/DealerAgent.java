@@ -2,27 +2,72 @@ package IntelligentProject;
 
 import jade.core.Agent;
 import jade.core.AID;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import jade.proto.AchieveREResponder;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class DealerAgent extends Agent {
-	protected String carType;	// Car model being sold
-    protected int listPrice;	// Initial asking price
-    private Map<AID, Integer> buyerRounds = new HashMap<>();	// Tracks negotiation rounds per buyer
+	protected final List<InventoryItem> inventory = new ArrayList<>();	// Car models on sale
+    // Open negotiations per buyer ("maxSessions=N", "sessionTtlMs=N" arguments)
+    private NegotiationSessions sessions;
+    private static final int DEFAULT_MAX_SESSIONS = 100;
+    private static final long DEFAULT_SESSION_TTL_MS = 60000;	// Well past the buyer's 15s round timeout
+    public static final String BUSY = "BUSY";	// REFUSE content when every session slot is taken
+    protected DealerStrategy strategy;	// Asking price per round ("strategy=NAME" argument)
+    private int deltaSequence = 0;	// Last listing update number (restarts on registration)
+    private static final int AUCTION_ROUNDS = 3;	// Auction bid = counter a negotiation reaches by this round
+
+    /**
+     * One car model on sale
+     */
+    protected static final class InventoryItem {
+        final String carType;	// Car model
+        int listPrice;			// Asking price
+        int stock;				// Units left (updated from the broker's DEAL_COMPLETED)
+
+        InventoryItem(String carType, int listPrice, int stock) {
+            this.carType = carType.trim();
+            this.listPrice = listPrice;
+            this.stock = stock;
+        }
+    }
 
     protected void setup() {
         try {
-            Object[] args = getArguments();
-            carType = (String) args[0];
-            listPrice = Integer.parseInt(args[1].toString());
+            strategy = Strategies.dealer(getArguments());
+            sessions = new NegotiationSessions(
+                Math.max(1, Integer.parseInt(Strategies.option(getArguments(), "maxSessions",
+                    Integer.toString(DEFAULT_MAX_SESSIONS)))),
+                Math.max(1, Long.parseLong(Strategies.option(getArguments(), "sessionTtlMs",
+                    Long.toString(DEFAULT_SESSION_TTL_MS)))));
+            parseInventory(Strategies.positional(getArguments()));
 
             registerWithBroker();
             setupNegotiationHandler();
+            addBehaviour(new SalesTracker());
+            addBehaviour(new CancellationHandler());
+            addBehaviour(new AuctionResponder());
 
-            GUI.logMessage(getLocalName(), "🏪 Registered " + carType + " @ $" + listPrice);
+            // Drop sessions of buyers that went quiet
+            addBehaviour(new TickerBehaviour(this, sessions.getTtl()) {
+                protected void onTick() {
+                    sessions.purgeExpired(System.currentTimeMillis());
+                }
+            });
+
+            for (InventoryItem item : inventory) {
+                GUI.logMessage(getLocalName(), "🏪 Registered " + item.carType +
+                    (item.stock != 1 ? " x" + item.stock : "") + " @ $" + item.listPrice);
+            }
+            if (!Strategies.LEGACY.equals(strategy.name())) {
+                GUI.logMessage(getLocalName(), "🎯 Strategy: " + strategy.name());
+            }
         } catch (Exception e) {
             GUI.logMessage(getLocalName(), "❌ Initialization failed: " + e.getMessage());
             doDelete();
@@ -30,20 +75,260 @@ public class DealerAgent extends Agent {
     }
 
     /**
-     * Registers car listing with BrokerAgent
-     * - Sends INFORM message with "CarType,Price" format
+     * Logs session statistics before termination
+     */
+    @Override
+    protected void takeDown() {
+        if (sessions != null) {
+            GUI.logMessage(getLocalName(), "📊 Sessions: " + sessions.stats());
+        }
+        super.takeDown();
+    }
+
+    /**
+     * Reads the dealer's inventory from its arguments
+     * @param args Either {CarType, Price[, Stock]} (stock defaults to 1)
+     *             or {"CarType:Price:Stock;CarType:Price:Stock;..."}
+     */
+    private void parseInventory(Object[] args) {
+        String first = args[0].toString();
+        if (args.length == 1 && first.indexOf(':') >= 0) {
+            for (String entry : first.split(";")) {
+                if (entry.trim().isEmpty()) continue;
+                String[] parts = entry.split(":");
+                inventory.add(new InventoryItem(parts[0],
+                    Integer.parseInt(parts[1].trim()),
+                    parts.length > 2 ? Integer.parseInt(parts[2].trim()) : 1));
+            }
+        } else {
+            inventory.add(new InventoryItem(first,
+                Integer.parseInt(args[1].toString()),
+                args.length > 2 ? Integer.parseInt(args[2].toString()) : 1));
+        }
+        if (inventory.isEmpty()) {
+            throw new IllegalArgumentException("Empty inventory");
+        }
+    }
+
+    /**
+     * Registers the whole inventory with BrokerAgent
+     * - Sends one INFORM with a binary INVENTORY (car type, price, stock per model)
+     *   to each broker shard holding any of the car types
      * - Essential for appearing in broker's marketplace
      */
     protected void registerWithBroker() {
+        try {
+            deltaSequence = 0;
+            Map<AID, List<InventoryItem>> byBroker = new LinkedHashMap<>();
+            for (InventoryItem item : inventory) {
+                byBroker.computeIfAbsent(BrokerRouter.brokerFor(item.carType), k -> new ArrayList<>()).add(item);
+            }
+            for (Map.Entry<AID, List<InventoryItem>> shard : byBroker.entrySet()) {
+                List<InventoryItem> items = shard.getValue();
+                String[] carTypes = new String[items.size()];
+                int[] prices = new int[items.size()];
+                int[] stocks = new int[items.size()];
+                StringBuilder summary = new StringBuilder();
+                for (int i = 0; i < items.size(); i++) {
+                    carTypes[i] = items.get(i).carType;
+                    prices[i] = items.get(i).listPrice;
+                    stocks[i] = items.get(i).stock;
+                    summary.append(carTypes[i]).append(",").append(prices[i])
+                        .append(" x").append(stocks[i]).append(";");
+                }
+                ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+                msg.addReceiver(shard.getKey());
+                MessageKind.tag(msg, MessageKind.LISTING);
+                msg.setByteSequenceContent(MessageCodec.inventory(carTypes, prices, stocks));
+                send(msg);
+                GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", summary.toString());
+            }
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Failed to register: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Changes the asking price of a model in place at the broker
+     * @param carType Listed car model
+     * @param price New asking price
+     */
+    protected void changePrice(String carType, int price) {
+        InventoryItem item = item(carType);
+        if (item != null) {
+            item.listPrice = price;
+            sendListingDelta(carType, MessageCodec.priceChange(++deltaSequence, carType, price));
+        }
+    }
+
+    /**
+     * Takes a model off the market
+     * @param carType Listed car model
+     */
+    protected void withdraw(String carType) {
+        InventoryItem item = item(carType);
+        if (item != null) {
+            inventory.remove(item);
+            sendListingDelta(carType, MessageCodec.withdraw(++deltaSequence, carType));
+        }
+    }
+
+    /**
+     * Adds delivered units of a listed model
+     * @param carType Listed car model (new models need registerWithBroker())
+     * @param units Units delivered
+     */
+    protected void restock(String carType, int units) {
+        InventoryItem item = item(carType);
+        if (item != null && units > 0) {
+            item.stock += units;
+            sendListingDelta(carType, MessageCodec.restock(++deltaSequence, carType, units));
+        }
+    }
+
+    /**
+     * Sends an incremental listing update to the car type's broker
+     * - Numbered from deltaSequence so the broker can refuse stale updates
+     */
+    private void sendListingDelta(String carType, byte[] content) {
         try {
             ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-            msg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-            String content = carType.trim() + "," + listPrice; // Standardized format
-            msg.setContent(content);
+            msg.addReceiver(BrokerRouter.brokerFor(carType));
+            MessageKind.tag(msg, MessageKind.LISTING_DELTA);
+            msg.setByteSequenceContent(content);
             send(msg);
-            GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", content);
+            GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", MessageCodec.describe(msg));
         } catch (Exception e) {
-            GUI.logMessage(getLocalName(), "⚠️ Failed to register: " + e.getMessage());
+            GUI.logMessage(getLocalName(), "⚠️ Failed to update listing: " + e.getMessage());
+        }
+    }
+
+    private InventoryItem item(String carType) {
+        for (InventoryItem item : inventory) {
+            if (item.carType.equalsIgnoreCase(carType.trim())) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the inventory entry an offer refers to
+     * @param offer Reader positioned on an OFFER (field 0 = car type)
+     * @return Matching entry with stock left, or null
+     */
+    private InventoryItem itemFor(MessageCodec.Reader offer) {
+        for (InventoryItem item : inventory) {
+            if (item.stock > 0 && offer.fieldEqualsIgnoreCase(0, item.carType)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bids in the BrokerAgent's Contract-Net auctions
+     * - CFP (content: car type): PROPOSE an OFFER at the strategy's bid for
+     *   AUCTION_ROUNDS, or REFUSE if the model is not in stock
+     * - ACCEPT_PROPOSAL / REJECT_PROPOSAL: the award; stock follows the broker's DEAL_COMPLETED
+     */
+    private class AuctionResponder extends CyclicBehaviour {
+        private final MessageTemplate mt = MessageTemplate.MatchOntology(MessageKind.AUCTION);
+
+        public void action() {
+            ACLMessage msg = myAgent.receive(mt);
+            if (msg == null) {
+                block();
+                return;
+            }
+            switch (msg.getPerformative()) {
+                case ACLMessage.CFP:
+                    bid(msg);
+                    break;
+                case ACLMessage.ACCEPT_PROPOSAL:
+                    GUI.logMessage(getLocalName(), "🏆 Won auction for " + msg.getContent());
+                    break;
+                case ACLMessage.REJECT_PROPOSAL:
+                    GUI.logMessage(getLocalName(), "➖ Lost auction for " + msg.getContent());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void bid(ACLMessage cfp) {
+            InventoryItem item = null;
+            for (InventoryItem candidate : inventory) {
+                if (candidate.stock > 0 && candidate.carType.equalsIgnoreCase(String.valueOf(cfp.getContent()).trim())) {
+                    item = candidate;
+                    break;
+                }
+            }
+            ACLMessage reply = cfp.createReply();
+            MessageKind.tag(reply, MessageKind.AUCTION);
+            if (item == null) {
+                reply.setPerformative(ACLMessage.REFUSE);
+                reply.setContent("Not in stock");
+            } else {
+                int price = strategy.bid(item.listPrice, AUCTION_ROUNDS);
+                reply.setPerformative(ACLMessage.PROPOSE);
+                reply.setByteSequenceContent(MessageCodec.offer(item.carType, price));
+                GUI.logMessage(getLocalName(), "📨 Bidding $" + price + " for " + item.carType);
+            }
+            send(reply);
+        }
+    }
+
+    /**
+     * Keeps local stock in step with completed deals
+     * - Listens for the broker's CONFIRM with a DEAL_COMPLETED (buyer, car type, price)
+     * - The broker decrements its listing for the same deal
+     * - Ends the buyer's negotiation session
+     */
+    private class SalesTracker extends CyclicBehaviour {
+        private final MessageTemplate mt = MessageTemplate.MatchPerformative(ACLMessage.CONFIRM);
+
+        public void action() {
+            ACLMessage msg = myAgent.receive(mt);
+            if (msg == null) {
+                block();
+                return;
+            }
+            MessageCodec.Reader sale = MessageCodec.reader();
+            if (!sale.read(msg, MessageCodec.DEAL_COMPLETED)) {
+                return;
+            }
+            sessions.end(sale.string(0));
+            for (InventoryItem item : inventory) {
+                if (sale.fieldEqualsIgnoreCase(1, item.carType) && item.stock > 0) {
+                    item.stock--;
+                    GUI.logMessage(getLocalName(), item.stock > 0
+                        ? "📦 Sold " + item.carType + " to " + sale.string(0) + ", " + item.stock + " left"
+                        : "📦 Sold out of " + item.carType);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends negotiations a buyer called off
+     * - A buyer negotiating with several dealers sends CANCEL to the ones it did not pick
+     * - Ends the buyer's session, so a later negotiation starts afresh
+     */
+    private class CancellationHandler extends CyclicBehaviour {
+        private final MessageTemplate mt = MessageTemplate.MatchPerformative(ACLMessage.CANCEL);
+
+        public void action() {
+            ACLMessage msg = myAgent.receive(mt);
+            if (msg == null) {
+                block();
+                return;
+            }
+            AID buyer = msg.getSender();
+            sessions.end(buyer.getLocalName());
+            GUI.logMessage(getLocalName(), "🚫 " + buyer.getLocalName() + " went with another dealer");
+            GUI.logInteraction(buyer.getLocalName(), getLocalName(), "CANCEL", msg.getContent());
         }
     }
 
@@ -57,20 +342,40 @@ public class DealerAgent extends Agent {
         addBehaviour(new AchieveREResponder(this, mt) {
         	/**
              * Core negotiation logic for handling offers
-             * @param propose Buyer's PROPOSE message with "CarType,Offer"
-             * @return Response message (ACCEPT/COUNTER/FAILURE)
+             * @param propose Buyer's PROPOSE message with an OFFER (binary or "CarType,Offer")
+             * @return Response message (ACCEPT/COUNTER/FAILURE, or REFUSE "BUSY" when
+             *         maxSessions other buyers are already negotiating)
              */
             protected ACLMessage prepareResponse(ACLMessage propose) {
                 try {
-                    String[] parts = propose.getContent().split(",");
-                    int offer = Integer.parseInt(parts[1]);
+                    MessageCodec.Reader proposal = MessageCodec.reader();
+                    if (!proposal.read(propose, MessageCodec.OFFER)) {
+                        throw new IllegalArgumentException("Malformed offer: " + MessageCodec.describe(propose));
+                    }
+                    InventoryItem item = itemFor(proposal);
+                    if (item == null) {
+                        throw new IllegalArgumentException("Not in stock: " + proposal.string(0));
+                    }
+                    String carType = item.carType;
+                    int listPrice = item.listPrice;
+                    int offer = proposal.integer(1);
                     AID buyer = propose.getSender();
 
-                    int rounds = buyerRounds.getOrDefault(buyer, 0) + 1;
-                    buyerRounds.put(buyer, rounds);
-
-                    double discount = Math.pow(0.95, rounds);
-                    int counter = Math.max((int)(listPrice * discount), (int)(listPrice * 0.7));
+                    NegotiationSessions.Session session = sessions.open(buyer.getLocalName(), System.currentTimeMillis());
+                    if (session == null) {
+                        GUI.logMessage(getLocalName(), "🚦 Busy (" + sessions.size() +
+                            " negotiations), refusing " + buyer.getLocalName());
+                        GUI.logInteraction(getLocalName(), buyer.getLocalName(), "REFUSE", BUSY);
+                        ACLMessage busy = propose.createReply();
+                        busy.setPerformative(ACLMessage.REFUSE);
+                        busy.setContent(BUSY);
+                        return busy;
+                    }
+                    int rounds = ++session.rounds;
+                    int counter = strategy.ask(listPrice, rounds, offer, session.lastOffer,
+                        rounds == 1 ? listPrice : session.lastAsk);
+                    session.lastOffer = offer;
+                    session.lastAsk = counter;
 
                     GUI.logMessage(getLocalName(), 
                         "📨 Offer from " + buyer.getLocalName() + ": $" + offer);
@@ -79,17 +384,19 @@ public class DealerAgent extends Agent {
                         "PROPOSE", carType + "," + offer);
 
                     if (offer >= counter) {
+                        sessions.end(buyer.getLocalName());
                         GUI.logMessage(getLocalName(), "✅ Accepting offer");
                         // Log acceptance
                         GUI.logInteraction(getLocalName(), buyer.getLocalName(), 
                             "ACCEPT", carType + "," + offer);
-                        return createAcceptMessage(propose);
+                        return createAcceptMessage(propose, item,
+                            "true".equals(propose.getUserDefinedParameter(BuyerAgent.BUYER_CONFIRMS)));
                     } else {
                         GUI.logMessage(getLocalName(), "🔄 Countering with $" + counter);
                         // Log counter offer
                         GUI.logInteraction(getLocalName(), buyer.getLocalName(), 
                             "PROPOSE", carType + "," + counter);
-                        return createCounterMessage(propose, counter);
+                        return createCounterMessage(propose, item, counter);
                     }
                 } catch (Exception e) {
                     GUI.logMessage(getLocalName(), "⚠️ Error handling offer: " + e.getMessage());
@@ -100,16 +407,28 @@ public class DealerAgent extends Agent {
             /**
              * Creates acceptance message and notifies broker
              * - Finalizes deal at agreed price
-             * - Removes dealer from broker listings
+             * - Broker takes one unit out of the dealer's stock
+             * - Buyers negotiating with several dealers confirm the deal they pick
+             *   themselves; the acceptance is then only an offer to them
+             * @param buyerConfirms True if the buyer, not the dealer, notifies the broker
              */
-            private ACLMessage createAcceptMessage(ACLMessage original) {
+            private ACLMessage createAcceptMessage(ACLMessage original, InventoryItem item, boolean buyerConfirms) {
                 ACLMessage accept = original.createReply();
                 accept.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
+                if (buyerConfirms) {
+                    return accept;
+                }
 
                 // Notify BrokerAgent of the accepted deal
                 ACLMessage brokerMsg = new ACLMessage(ACLMessage.INFORM);
-                brokerMsg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                brokerMsg.setContent("DEAL_CONFIRMED," + original.getSender().getLocalName() + "," + getLocalName() + "," + carType + "," + listPrice);
+                brokerMsg.addReceiver(BrokerRouter.brokerFor(item.carType));
+                MessageKind.tag(brokerMsg, MessageKind.DEAL_CONFIRMED);
+                brokerMsg.setByteSequenceContent(MessageCodec.dealConfirmed(
+                    original.getSender().getLocalName(), getLocalName(), item.carType, item.listPrice));
+                String dealId = original.getUserDefinedParameter(BrokerAgent.DEAL_ID);
+                if (dealId != null) {
+                    brokerMsg.addUserDefinedParameter(BrokerAgent.DEAL_ID, dealId);	// Buyer's ID for this deal
+                }
                 send(brokerMsg);
 
                 return accept;
@@ -119,30 +438,35 @@ public class DealerAgent extends Agent {
              * Generates counter-offer message
              * @param price Calculated counter offer amount
              */
-            private ACLMessage createCounterMessage(ACLMessage original, int price) {
-                return createReply(original, ACLMessage.PROPOSE, carType + "," + price);
+            private ACLMessage createCounterMessage(ACLMessage original, InventoryItem item, int price) {
+                return createReply(original, ACLMessage.PROPOSE, MessageCodec.offer(item.carType, price));
             }
 
             /**
              * Handles negotiation failures/errors
+             * - Reports the offered car type (or the first model if the offer is unreadable)
              */
             private ACLMessage createFailureMessage(ACLMessage original) {
+                sessions.end(original.getSender().getLocalName());
+                MessageCodec.Reader proposal = MessageCodec.reader();
+                String carType = proposal.read(original, MessageCodec.OFFER)
+                    ? proposal.string(0) : inventory.get(0).carType;
+
                 // Notify broker of failure
                 ACLMessage brokerMsg = new ACLMessage(ACLMessage.FAILURE);
-                brokerMsg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                brokerMsg.setContent("NEGOTIATION_FAILED," + 
-                    original.getSender().getLocalName() + "," + 
-                    getLocalName() + "," + 
-                    carType);
+                brokerMsg.addReceiver(BrokerRouter.brokerFor(carType));
+                MessageKind.tag(brokerMsg, MessageKind.NEGOTIATION_FAILED);
+                brokerMsg.setByteSequenceContent(MessageCodec.negotiationFailed(
+                    original.getSender().getLocalName(), getLocalName(), carType));
                 send(brokerMsg);
                 
                 return createReply(original, ACLMessage.FAILURE, null);
             }
 
-            private ACLMessage createReply(ACLMessage original, int performative, String content) {
+            private ACLMessage createReply(ACLMessage original, int performative, byte[] content) {
                 ACLMessage reply = original.createReply();
                 reply.setPerformative(performative);
-                if (content != null) reply.setContent(content);
+                if (content != null) reply.setByteSequenceContent(content);
                 return reply;
             }
         });
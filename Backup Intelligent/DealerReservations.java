@@ -0,0 +1,106 @@
+package IntelligentProject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Short-lived dealer leases handed out by the BrokerAgent
+ * - A dealer matched to a buyer is reserved for a TTL
+ * - Later requests for the same car type prefer unreserved dealers
+ * - Leases expire on their own or are released when the negotiation ends
+ * - Thread-safe (methods synchronize on the table)
+ */
+public class DealerReservations {
+
+    // Current holder of a dealer lease
+    private static final class Lease {
+        final String buyer;
+        final long expiresAt;
+
+        Lease(String buyer, long expiresAt) {
+            this.buyer = buyer;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Lease> leases = new HashMap<>();	// Dealer -> lease
+    private long ttlMs;
+
+    /**
+     * @param ttlMs Lease lifetime in milliseconds
+     */
+    public DealerReservations(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    public synchronized void setTtl(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    public synchronized long getTtl() {
+        return ttlMs;
+    }
+
+    /**
+     * Reserves a dealer for a buyer, replacing any existing lease
+     * @param dealer Dealer agent name
+     * @param buyer Buyer agent name
+     * @param now Current time in milliseconds
+     */
+    public synchronized void reserve(String dealer, String buyer, long now) {
+        leases.put(dealer, new Lease(buyer, now + ttlMs));
+    }
+
+    /**
+     * @param dealer Dealer agent name
+     * @param now Current time in milliseconds
+     * @return True if the dealer holds an unexpired lease
+     */
+    public synchronized boolean isReserved(String dealer, long now) {
+        Lease lease = leases.get(dealer);
+        if (lease == null) {
+            return false;
+        }
+        if (lease.expiresAt <= now) {
+            leases.remove(dealer);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases a dealer's lease
+     * @param dealer Dealer agent name
+     * @param buyer Buyer ending the negotiation, or null to release regardless of holder
+     */
+    public synchronized void release(String dealer, String buyer) {
+        Lease lease = leases.get(dealer);
+        if (lease != null && (buyer == null || buyer.equals(lease.buyer))) {
+            leases.remove(dealer);
+        }
+    }
+
+    /**
+     * Drops all expired leases
+     * @param now Current time in milliseconds
+     * @return Number of leases removed
+     */
+    public synchronized int purgeExpired(long now) {
+        int removed = 0;
+        for (Iterator<Lease> it = leases.values().iterator(); it.hasNext(); ) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return Number of leases held (including not yet purged expired ones)
+     */
+    public synchronized int size() {
+        return leases.size();
+    }
+}
@@ -0,0 +1,38 @@
+package IntelligentProject;
+
+/**
+ * Dealer side of a price negotiation
+ * - Decides the asking price for each round; DealerAgent accepts any offer at
+ *   or above it and counters with it otherwise
+ * - Independent of JADE: all state of the negotiation is passed in, so one
+ *   instance serves every buyer and can run in plain Java (e.g. a tournament)
+ * - Implementations precompute their concession schedules, so ask() does no
+ *   allocation and no floating-point work
+ * - Built-in strategies: see Strategies
+ */
+public interface DealerStrategy {
+
+    /**
+     * Asking price for one round
+     * @param listPrice Dealer's list price for the model
+     * @param round Round number, starting at 1
+     * @param offer Buyer's offer this round
+     * @param previousOffer Buyer's offer last round (0 in round 1)
+     * @param previousAsk This dealer's ask last round (listPrice in round 1)
+     * @return Asking price, at most listPrice
+     */
+    int ask(int listPrice, int round, int offer, int previousOffer, int previousAsk);
+
+    /**
+     * Sealed bid standing in for a whole negotiation (Contract-Net auctions)
+     * @param listPrice Dealer's list price for the model
+     * @param rounds Negotiation length the bid should match
+     * @return Bid price
+     */
+    int bid(int listPrice, int rounds);
+
+    /**
+     * @return Name the strategy is selected by
+     */
+    String name();
+}
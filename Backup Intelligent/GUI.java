@@ -72,6 +72,7 @@ public class GUI {
     private static JPanel commissionPanel;
     private static Map<String, Map<String, Boolean>> buyerAcceptances = new ConcurrentHashMap<>();
     private static Map<String, Map<String, Boolean>> dealerAcceptances = new ConcurrentHashMap<>();
+    private static Map<String, String> manualDealIds = new ConcurrentHashMap<>();	// "buyer|dealer" -> deal ID
     
     /**
      * Initializes the main GUI components
@@ -855,6 +856,7 @@ public class GUI {
                 ACLMessage accept = new ACLMessage(ACLMessage.ACCEPT_PROPOSAL);
                 accept.addReceiver(new AID(currentBuyer, AID.ISLOCALNAME));
                 accept.setContent("Start Negotiating...");
+                GUI.openManualDeal(currentBuyer, dealerName);
                 
                 jade.wrapper.AgentController ac = Main.getContainer().getAgent(dealerName);
                 IManualDealerAgent dealerAgent = (IManualDealerAgent) ac.getO2AInterface(IManualDealerAgent.class);
@@ -1303,7 +1305,7 @@ public class GUI {
         } else if (agentName.startsWith("A.Dealer")) {
             bgColor = new Color(255, 245, 238); // Seashell
             fgColor = new Color(128, 0, 0); // Maroon
-        } else if (agentName.equals("BrokerAgent")) {
+        } else if (BrokerRouter.isBroker(agentName)) {
             bgColor = new Color(240, 255, 240); // Honeydew
             fgColor = new Color(0, 100, 0); // Dark Green
         } else if (agentName.startsWith("M.Buyer")) {
@@ -1466,7 +1468,7 @@ public class GUI {
             if (agentName.startsWith("M.Dealer") || agentName.startsWith("A.Dealer")) {
                 return "Dealer";
             }
-            if (agentName.equals("BrokerAgent") || agentName.equals("Broker")) {
+            if (BrokerRouter.isBroker(agentName) || agentName.equals("Broker")) {
                 return "Broker";
             }
             return agentName;
@@ -1680,6 +1682,41 @@ public class GUI {
                                 .getOrDefault(buyer, false);
     }
 
+    /**
+     * Deal ID of the manual negotiation between a buyer and a dealer
+     * - Minted when the negotiation opens (or at the first mutual acceptance)
+     *   and reused by every confirmation of that deal, so repeated Accept
+     *   clicks are booked once
+     * - A new negotiation between the same pair gets a new ID
+     */
+    public static synchronized String manualDealId(String buyer, String dealer) {
+        return manualDealIds.computeIfAbsent(buyer + "|" + dealer, k -> DealLedger.newId());
+    }
+
+    /**
+     * Starts a manual negotiation: fresh deal ID, no acceptances yet
+     */
+    public static synchronized void openManualDeal(String buyer, String dealer) {
+        endManualDeal(buyer, dealer, null);
+        manualDealId(buyer, dealer);
+    }
+
+    /**
+     * Ends a manual negotiation once its deal is booked or rejected
+     * - Clears the deal ID and both acceptances
+     * @param dealId Only end the negotiation holding this ID (null = any), so a
+     *               late booking cannot clear a newer negotiation of the pair
+     */
+    public static synchronized void endManualDeal(String buyer, String dealer, String dealId) {
+        String key = buyer + "|" + dealer;
+        if (dealId != null && !dealId.equals(manualDealIds.get(key))) {
+            return;
+        }
+        manualDealIds.remove(key);
+        buyerAcceptances.getOrDefault(buyer, Collections.emptyMap()).remove(dealer);
+        dealerAcceptances.getOrDefault(dealer, Collections.emptyMap()).remove(buyer);
+    }
+
     private static class ConfirmButtonEditor extends AbstractCellEditor implements TableCellEditor {
     	private final JPanel panel = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 0));
         private final JButton acceptBtn = new JButton("✅ Accept");
@@ -1713,6 +1750,11 @@ public class GUI {
         
         private void handleAccept() {
             try {
+                // A confirmed deal stays booked; later clicks on its row do nothing
+                if ("Confirmed".equals(model.getValueAt(currentRow, 3))) {
+                    return;
+                }
+
             	// Record acceptance
                 if(isBuyer) {
                     GUI.recordBuyerAcceptance(currentAgent, counterpart);
@@ -1725,7 +1767,9 @@ public class GUI {
                     isBuyer ? currentAgent : counterpart, 
                     isBuyer ? counterpart : currentAgent)) {
                     
-                    notifyBroker();
+                    notifyBroker(GUI.manualDealId(
+                        isBuyer ? currentAgent : counterpart,
+                        isBuyer ? counterpart : currentAgent));
                     
                     SwingUtilities.invokeLater(() -> {
                         // Update current agent's table
@@ -1804,6 +1848,8 @@ public class GUI {
                 // 2. Send notification to broker via O2A - REMOVE THE LOG HERE
                 Object[] brokerCmd = new Object[]{"NOTIFY_BROKER_REJECT", counterpart};
                 Main.getContainer().getAgent(currentAgent).putO2AObject(brokerCmd, true);
+                GUI.endManualDeal(isBuyer ? currentAgent : counterpart,
+                    isBuyer ? counterpart : currentAgent, null);
 
                 // 3. GUI updates - LOG ONLY ONCE HERE
                 model.setValueAt("Rejected", currentRow, 3);
@@ -1829,11 +1875,13 @@ public class GUI {
         /**
          * Notifies the BrokerAgent of a confirmed deal
          * - Sends deal details including car type and price
+         * @param dealId The negotiation's ID (see manualDealId(); also the argument of
+         *               an agent's {"NOTIFY_BROKER", counterpart, dealId} command)
          */
-        private void notifyBroker() {
+        private void notifyBroker(String dealId) {
             try {
             	ACLMessage brokerMsg = new ACLMessage(ACLMessage.INFORM);
-                brokerMsg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
+                MessageKind.tag(brokerMsg, MessageKind.DEAL_CONFIRMED);
                 
                 // Get deal details
                 String carType = "";
@@ -1857,10 +1905,12 @@ public class GUI {
                     }
                 }
                 
+                brokerMsg.addReceiver(BrokerRouter.brokerFor(carType));
                 brokerMsg.setContent("DEAL_CONFIRMED," + 
                         (isBuyer ? currentAgent : counterpart) + "," + 
                         (isBuyer ? counterpart : currentAgent) + "," + 
                         carType + "," + price);
+                brokerMsg.addUserDefinedParameter(BrokerAgent.DEAL_ID, dealId);
                 
                 // Send through the appropriate agent
                 if(isBuyer) {
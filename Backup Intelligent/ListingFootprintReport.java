@@ -0,0 +1,75 @@
+package IntelligentProject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory footprint report for broker listing storage
+ * Compares the original HashMap of "CarType,Price" strings with ListingIndex
+ *
+ * Usage: java IntelligentProject.ListingFootprintReport [listings] [carTypes]
+ * Run with a fixed heap (e.g. -Xms2g -Xmx2g) for stable numbers
+ */
+public class ListingFootprintReport {
+
+    public static void main(String[] args) {
+        int listingCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int typeCount = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        // Dealer names exist in both designs, allocate them outside the measurements
+        String[] dealerNames = new String[listingCount];
+        String[] typeNames = new String[typeCount];
+        for (int i = 0; i < listingCount; i++) {
+            dealerNames[i] = "A.Dealer" + i;
+        }
+        for (int t = 0; t < typeCount; t++) {
+            typeNames[t] = "CarType" + t;
+        }
+
+        long before = usedHeap();
+        Map<String, String> carListings = new HashMap<>();
+        for (int i = 0; i < listingCount; i++) {
+            carListings.put(dealerNames[i], typeNames[i % typeCount] + "," + price(i));
+        }
+        long mapBytes = usedHeap() - before;
+        int mapSize = carListings.size();
+        carListings = null;
+
+        before = usedHeap();
+        SymbolTable carTypes = SymbolTable.forCarTypes();
+        ListingIndex index = new ListingIndex(listingCount);
+        for (int i = 0; i < listingCount; i++) {
+            index.put(dealerNames[i], carTypes.intern(typeNames[i % typeCount]), price(i), 1);
+        }
+        long indexBytes = usedHeap() - before;
+
+        System.out.println("Listings:                       " + mapSize);
+        System.out.println("HashMap<String,String>:         " + format(mapBytes, mapSize));
+        System.out.println("ListingIndex (total):           " + format(indexBytes, index.size()));
+        System.out.println("ListingIndex (primitive arrays):" + format(index.footprintBytes(), index.size()));
+        System.out.println("Note: the HashMap has no price ordering; ListingIndex totals include");
+        System.out.println("      the sorted per-type index and the dealer name dictionary.");
+    }
+
+    // Deterministic spread of prices between 20,000 and 59,999
+    private static int price(int i) {
+        return 20000 + (int) ((i * 2654435761L) % 40000);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static String format(long bytes, int count) {
+        return String.format(" %,12d bytes  (%.1f bytes/listing)", bytes, (double) bytes / count);
+    }
+}
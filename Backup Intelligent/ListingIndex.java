@@ -0,0 +1,413 @@
+package IntelligentProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Price-ordered index of dealer listings used by the BrokerAgent
+ * - Listing fields live in a primitive ListingStore (see ListingStore)
+ * - A listing is one (dealer, car type) pair with a price and a stock count;
+ *   a dealer can list several car types
+ * - Dealers are interned to int IDs and mapped to a chain of their slots
+ * - Each car type ID keeps an int[] of its slots sorted by (price, slot);
+ *   prices are read from the store, not copied into the index
+ * - Cheapest-dealer lookups read the head of the group
+ * - Price range queries binary search the group and page by offset/limit
+ * - Listing deltas (price change, restock, withdraw) are applied in place;
+ *   each dealer's last applied sequence number is kept so stale deltas are refused
+ * - version() counts every change and can be read without locking, so callers
+ *   can tell cheaply whether anything changed since they last looked
+ * - Public methods synchronize on the index, so broker workers can share it
+ */
+public class ListingIndex {
+    private static final int NO_SLOT = ListingStore.FREE;
+
+    /**
+     * Immutable dealer offering returned by queries
+     */
+    public static final class Listing {
+        public final String dealer;     // Dealer agent local name
+        public final int carTypeId;     // Car type symbol ID
+        public final int price;         // Listed price
+        public final int stock;         // Units on hand
+
+        Listing(String dealer, int carTypeId, int price, int stock) {
+            this.dealer = dealer;
+            this.carTypeId = carTypeId;
+            this.price = price;
+            this.stock = stock;
+        }
+    }
+
+    private final ListingStore store;
+    private final SymbolTable dealers = new SymbolTable(false);
+    private int[] dealerSlots = new int[16];				// Dealer ID -> first slot of its chain (NO_SLOT if none)
+    private int[] dealerSequences = new int[16];			// Dealer ID -> last applied delta sequence
+    private volatile long version = 0;						// Bumped on every listing change
+    private PriceIndex[] byCarType = new PriceIndex[8];	// Car type ID -> slots by price
+
+    public ListingIndex() {
+        this(1024);
+    }
+
+    /**
+     * @param initialCapacity Listings to reserve storage for
+     */
+    public ListingIndex(int initialCapacity) {
+        store = new ListingStore(initialCapacity);
+        Arrays.fill(dealerSlots, NO_SLOT);
+    }
+
+    /**
+     * Registers or replaces one car type in a dealer's inventory
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @param price Listed price (must not be negative)
+     * @param stock Units on hand (0 or less removes the listing)
+     * @return Listing it replaced or null if the dealer had none for the type
+     */
+    public synchronized Listing put(String dealer, int carTypeId, int price, int stock) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Negative price: " + price);
+        }
+        int dealerId = internDealer(dealer);
+        Listing replaced = null;
+        int existing = find(dealerId, carTypeId);
+        if (existing != NO_SLOT) {
+            replaced = toListing(existing);
+            removeSlot(dealerId, existing);
+        }
+        if (stock > 0) {
+            int slot = store.allocate(dealerId, carTypeId, price, stock, dealerSlots[dealerId]);
+            dealerSlots[dealerId] = slot;
+            groupFor(carTypeId).insert(slot);
+        }
+        version++;
+        return replaced;
+    }
+
+    /**
+     * Removes one car type from a dealer's inventory
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @return Removed listing or null if the dealer had none for the type
+     */
+    public synchronized Listing remove(String dealer, int carTypeId) {
+        int dealerId = dealers.lookup(dealer);
+        int slot = find(dealerId, carTypeId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        Listing removed = toListing(slot);
+        removeSlot(dealerId, slot);
+        version++;
+        return removed;
+    }
+
+    /**
+     * Takes one unit of a dealer's car type out of stock
+     * - The listing is removed once its stock reaches 0
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @return Listing after the sale (stock 0 if it sold out), or null if none was listed
+     */
+    public synchronized Listing takeOne(String dealer, int carTypeId) {
+        int dealerId = dealers.lookup(dealer);
+        int slot = find(dealerId, carTypeId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        int stock = store.stock(slot) - 1;
+        Listing after = new Listing(dealer, carTypeId, store.price(slot), stock);
+        if (stock > 0) {
+            store.setStock(slot, stock);
+        } else {
+            removeSlot(dealerId, slot);
+        }
+        version++;
+        return after;
+    }
+
+    /**
+     * Changes the price of a dealer's listing in place (stock is kept)
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @param price New price (must not be negative)
+     * @return Listing before the change, or null if none was listed
+     */
+    public synchronized Listing setPrice(String dealer, int carTypeId, int price) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Negative price: " + price);
+        }
+        int slot = find(dealers.lookup(dealer), carTypeId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        Listing before = toListing(slot);
+        PriceIndex group = byCarType[carTypeId];
+        group.remove(slot);		// Still at the old price
+        store.setPrice(slot, price);
+        group.insert(slot);
+        version++;
+        return before;
+    }
+
+    /**
+     * Adds units to a dealer's listing
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @param units Units delivered (must be positive)
+     * @return Listing after the restock, or null if none was listed (a new model
+     *         needs a registration, which carries its price)
+     */
+    public synchronized Listing restock(String dealer, int carTypeId, int units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("Restock must add units: " + units);
+        }
+        int slot = find(dealers.lookup(dealer), carTypeId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        int stock = (int) Math.min((long) store.stock(slot) + units, Integer.MAX_VALUE);
+        store.setStock(slot, stock);
+        version++;
+        return toListing(slot);
+    }
+
+    /**
+     * Records a dealer's delta sequence number if it is newer than the last one
+     * @param dealer Dealer agent name
+     * @param sequence Sequence number carried by the delta
+     * @return False if the delta is stale (not above the last applied number)
+     */
+    public synchronized boolean advanceSequence(String dealer, int sequence) {
+        int dealerId = internDealer(dealer);
+        if (sequence <= dealerSequences[dealerId]) {
+            return false;
+        }
+        dealerSequences[dealerId] = sequence;
+        return true;
+    }
+
+    /**
+     * Restarts a dealer's delta numbering (on a full registration)
+     * @param dealer Dealer agent name
+     */
+    public synchronized void resetSequence(String dealer) {
+        dealerSequences[internDealer(dealer)] = 0;
+    }
+
+    /**
+     * @return Number of listing changes so far (lock-free read)
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @param dealer Dealer agent name
+     * @param carTypeId Car type symbol ID
+     * @return Dealer's listing for the type, or null if none
+     */
+    public synchronized Listing get(String dealer, int carTypeId) {
+        int slot = find(dealers.lookup(dealer), carTypeId);
+        return slot == NO_SLOT ? null : toListing(slot);
+    }
+
+    /**
+     * @param dealer Dealer agent name
+     * @return Every listing the dealer holds (empty if none)
+     */
+    public synchronized List<Listing> inventory(String dealer) {
+        int dealerId = dealers.lookup(dealer);
+        if (dealerId == SymbolTable.UNKNOWN || dealerId >= dealerSlots.length) {
+            return Collections.emptyList();
+        }
+        List<Listing> items = new ArrayList<>();
+        for (int slot = dealerSlots[dealerId]; slot != NO_SLOT; slot = store.next(slot)) {
+            items.add(toListing(slot));
+        }
+        return items;
+    }
+
+    /**
+     * Finds the lowest priced listing for a car type
+     * @param carTypeId Car type symbol ID (UNKNOWN yields null)
+     * @return Cheapest listing or null if none registered
+     */
+    public synchronized Listing cheapest(int carTypeId) {
+        PriceIndex group = group(carTypeId);
+        return group == null || group.size == 0 ? null : toListing(group.slots[0]);
+    }
+
+    /**
+     * Returns one page of listings at or below a price, cheapest first
+     * @param carTypeId Car type symbol ID (UNKNOWN yields no results)
+     * @param maxPrice Inclusive price ceiling
+     * @param offset Number of matching listings to skip
+     * @param limit Maximum listings to return
+     * @return Page of matching listings (empty if none)
+     */
+    public synchronized List<Listing> range(int carTypeId, int maxPrice, int offset, int limit) {
+        PriceIndex group = group(carTypeId);
+        if (group == null || offset < 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int end = group.upperBound(maxPrice);
+        if (offset >= end) {
+            return Collections.emptyList();
+        }
+        int last = (int) Math.min((long) offset + limit, end);
+        List<Listing> page = new ArrayList<>(last - offset);
+        for (int i = offset; i < last; i++) {
+            page.add(toListing(group.slots[i]));
+        }
+        return page;
+    }
+
+    /**
+     * @return Number of active (dealer, car type) listings
+     */
+    public synchronized int size() {
+        return store.size();
+    }
+
+    /**
+     * @return Approximate bytes held by the store, per-dealer arrays and price indexes
+     *         (excludes the dealer name dictionary)
+     */
+    public synchronized long footprintBytes() {
+        long bytes = store.footprintBytes() + 2L * Integer.BYTES * dealerSlots.length;
+        for (PriceIndex group : byCarType) {
+            if (group != null) {
+                bytes += (long) Integer.BYTES * group.slots.length;
+            }
+        }
+        return bytes;
+    }
+
+    // Interns a dealer, growing the per-dealer arrays as needed
+    private int internDealer(String dealer) {
+        int dealerId = dealers.intern(dealer);
+        if (dealerId >= dealerSlots.length) {
+            int oldLength = dealerSlots.length;
+            int capacity = Math.max(dealerId + 1, oldLength + (oldLength >> 1));
+            dealerSlots = Arrays.copyOf(dealerSlots, capacity);
+            Arrays.fill(dealerSlots, oldLength, capacity, NO_SLOT);
+            dealerSequences = Arrays.copyOf(dealerSequences, capacity);
+        }
+        return dealerId;
+    }
+
+    // Slot of a dealer's listing for a car type, walking the dealer's chain
+    private int find(int dealerId, int carTypeId) {
+        if (dealerId == SymbolTable.UNKNOWN || dealerId >= dealerSlots.length) {
+            return NO_SLOT;
+        }
+        for (int slot = dealerSlots[dealerId]; slot != NO_SLOT; slot = store.next(slot)) {
+            if (store.carTypeId(slot) == carTypeId) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    // Unlinks a slot from its dealer's chain, then drops it from its group and the store
+    private void removeSlot(int dealerId, int slot) {
+        if (dealerSlots[dealerId] == slot) {
+            dealerSlots[dealerId] = store.next(slot);
+        } else {
+            int prev = dealerSlots[dealerId];
+            while (store.next(prev) != slot) {
+                prev = store.next(prev);
+            }
+            store.setNext(prev, store.next(slot));
+        }
+        byCarType[store.carTypeId(slot)].remove(slot);
+        store.release(slot);
+    }
+
+    private Listing toListing(int slot) {
+        return new Listing(dealers.nameOf(store.dealerId(slot)), store.carTypeId(slot),
+            store.price(slot), store.stock(slot));
+    }
+
+    private PriceIndex group(int carTypeId) {
+        return carTypeId < 0 || carTypeId >= byCarType.length ? null : byCarType[carTypeId];
+    }
+
+    private PriceIndex groupFor(int carTypeId) {
+        if (carTypeId >= byCarType.length) {
+            byCarType = Arrays.copyOf(byCarType, Math.max(carTypeId + 1, byCarType.length * 2));
+        }
+        if (byCarType[carTypeId] == null) {
+            byCarType[carTypeId] = new PriceIndex();
+        }
+        return byCarType[carTypeId];
+    }
+
+    /**
+     * Slots of one car type sorted by (price, slot)
+     * - Grows by half its size, so at most a third of the array is slack
+     */
+    private final class PriceIndex {
+        int[] slots = new int[4];
+        int size = 0;
+
+        void insert(int slot) {
+            int pos = search(store.price(slot), slot);
+            pos = pos < 0 ? -(pos + 1) : pos;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size + (size >> 1) + 1);
+            }
+            System.arraycopy(slots, pos, slots, pos + 1, size - pos);
+            slots[pos] = slot;
+            size++;
+        }
+
+        // Call while the store still holds the price the slot was inserted with
+        void remove(int slot) {
+            int pos = search(store.price(slot), slot);
+            if (pos >= 0) {
+                System.arraycopy(slots, pos + 1, slots, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        // Index of the first slot priced above maxPrice
+        int upperBound(int maxPrice) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (store.price(slots[mid]) <= maxPrice) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Binary search like Arrays.binarySearch: index, or -(insertion point) - 1
+        private int search(int price, int slot) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midPrice = store.price(slots[mid]);
+                int cmp = midPrice != price ? Integer.compare(midPrice, price) : Integer.compare(slots[mid], slot);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package IntelligentProject;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for broker listings
+ * - One slot per listing across parallel int arrays (dealer ID, car type ID, price,
+ *   stock, next slot of the same dealer)
+ * - Released slots are chained into a free list and reused before the arrays grow
+ * - 20 bytes per slot with no per-listing objects, keys or boxed values
+ */
+public class ListingStore {
+    public static final int FREE = -1;	// Car type marker for released slots, end of a dealer chain
+
+    private int[] dealerIds;
+    private int[] carTypeIds;	// FREE for released slots
+    private int[] prices;		// Next free slot while a slot is released
+    private int[] stocks;		// Units on hand
+    private int[] nextOfDealer;	// Next slot in the owning dealer's chain (FREE = end)
+
+    private int highWater = 0;	// Slots handed out at least once
+    private int freeHead = FREE;	// Most recently released slot
+    private int size = 0;		// Live listings
+
+    /**
+     * @param initialCapacity Slots to allocate up front
+     */
+    public ListingStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        dealerIds = new int[capacity];
+        carTypeIds = new int[capacity];
+        prices = new int[capacity];
+        stocks = new int[capacity];
+        nextOfDealer = new int[capacity];
+    }
+
+    /**
+     * Stores a listing in a free slot
+     * @param dealerId Dealer symbol ID
+     * @param carTypeId Car type symbol ID
+     * @param price Listed price
+     * @param stock Units on hand
+     * @param next Next slot in the dealer's chain (FREE if none)
+     * @return Slot holding the listing
+     */
+    public int allocate(int dealerId, int carTypeId, int price, int stock, int next) {
+        int slot;
+        if (freeHead != FREE) {
+            slot = freeHead;
+            freeHead = prices[slot];
+        } else {
+            if (highWater == dealerIds.length) {
+                grow();
+            }
+            slot = highWater++;
+        }
+        dealerIds[slot] = dealerId;
+        carTypeIds[slot] = carTypeId;
+        prices[slot] = price;
+        stocks[slot] = stock;
+        nextOfDealer[slot] = next;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Returns a slot to the free list
+     * @param slot Live slot
+     */
+    public void release(int slot) {
+        carTypeIds[slot] = FREE;
+        prices[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    public int dealerId(int slot) {
+        return dealerIds[slot];
+    }
+
+    public int carTypeId(int slot) {
+        return carTypeIds[slot];
+    }
+
+    public int price(int slot) {
+        return prices[slot];
+    }
+
+    public void setPrice(int slot, int price) {
+        prices[slot] = price;
+    }
+
+    public int stock(int slot) {
+        return stocks[slot];
+    }
+
+    public void setStock(int slot, int stock) {
+        stocks[slot] = stock;
+    }
+
+    public int next(int slot) {
+        return nextOfDealer[slot];
+    }
+
+    public void setNext(int slot, int next) {
+        nextOfDealer[slot] = next;
+    }
+
+    /**
+     * @return Number of live listings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Bytes held by the slot arrays
+     */
+    public long footprintBytes() {
+        return 5L * Integer.BYTES * dealerIds.length;
+    }
+
+    // Grows all columns by 1.5x
+    private void grow() {
+        int capacity = dealerIds.length + (dealerIds.length >> 1);
+        dealerIds = Arrays.copyOf(dealerIds, capacity);
+        carTypeIds = Arrays.copyOf(carTypeIds, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        stocks = Arrays.copyOf(stocks, capacity);
+        nextOfDealer = Arrays.copyOf(nextOfDealer, capacity);
+    }
+}
@@ -0,0 +1,125 @@
+package IntelligentProject;
+
+import jade.core.AID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Standing listing subscriptions held by the BrokerAgent
+ * - A subscription is one buyer conversation watching (car type, max price)
+ * - Subscriptions are grouped by car type ID, so a listing change only visits
+ *   the subscribers of its own type
+ * - eventFor() turns a listing change into the add/remove/price event a
+ *   subscriber should see (or none)
+ * - Thread-safe (methods synchronize on the table)
+ */
+public class ListingSubscriptions {
+
+    /**
+     * One buyer's standing query
+     */
+    public static final class Subscription {
+        public final AID subscriber;			// Buyer receiving the events
+        public final String conversationId;	// Conversation the events are sent in
+        public final int carTypeId;				// Watched car type symbol ID
+        public final int maxPrice;				// Inclusive price ceiling
+
+        public Subscription(AID subscriber, String conversationId, int carTypeId, int maxPrice) {
+            this.subscriber = subscriber;
+            this.conversationId = conversationId;
+            this.carTypeId = carTypeId;
+            this.maxPrice = maxPrice;
+        }
+
+        boolean sameAs(AID subscriber, String conversationId) {
+            return this.subscriber.equals(subscriber)
+                && (conversationId == null ? this.conversationId == null : conversationId.equals(this.conversationId));
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})	// Generic array creation
+    private List<Subscription>[] byCarType = new List[8];	// Car type ID -> subscriptions (null = none)
+    private int size = 0;
+
+    /**
+     * Registers a subscription, replacing one with the same subscriber and conversation
+     * @param subscription New subscription
+     */
+    public synchronized void add(Subscription subscription) {
+        remove(subscription.subscriber, subscription.conversationId);
+        int carTypeId = subscription.carTypeId;
+        if (carTypeId >= byCarType.length) {
+            byCarType = Arrays.copyOf(byCarType, Math.max(carTypeId + 1, byCarType.length * 2));
+        }
+        if (byCarType[carTypeId] == null) {
+            byCarType[carTypeId] = new ArrayList<>();
+        }
+        byCarType[carTypeId].add(subscription);
+        size++;
+    }
+
+    /**
+     * Cancels a subscription
+     * @param subscriber Buyer that subscribed
+     * @param conversationId Conversation of the subscription
+     * @return Removed subscription, or null if none matched
+     */
+    public synchronized Subscription remove(AID subscriber, String conversationId) {
+        for (List<Subscription> group : byCarType) {
+            if (group == null) continue;
+            for (Iterator<Subscription> it = group.iterator(); it.hasNext(); ) {
+                Subscription subscription = it.next();
+                if (subscription.sameAs(subscriber, conversationId)) {
+                    it.remove();
+                    size--;
+                    return subscription;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param carTypeId Car type symbol ID
+     * @return Copy of the type's subscriptions (shared empty list if none)
+     */
+    public synchronized List<Subscription> forCarType(int carTypeId) {
+        if (carTypeId < 0 || carTypeId >= byCarType.length
+                || byCarType[carTypeId] == null || byCarType[carTypeId].isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(byCarType[carTypeId]);
+    }
+
+    /**
+     * @return Number of active subscriptions
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Event a subscriber should receive for a listing change
+     * @param subscription Subscription of the listing's car type
+     * @param before Listing before the change (null if newly added)
+     * @param after Listing after the change (null if removed)
+     * @return MessageCodec EVENT_* code, or 0 if the subscriber's view is unchanged
+     */
+    public static int eventFor(Subscription subscription, ListingIndex.Listing before, ListingIndex.Listing after) {
+        boolean matched = before != null && before.price <= subscription.maxPrice;
+        boolean matches = after != null && after.price <= subscription.maxPrice;
+        if (matches && !matched) {
+            return MessageCodec.EVENT_ADD;
+        }
+        if (matched && !matches) {
+            return MessageCodec.EVENT_REMOVE;
+        }
+        if (matched && before.price != after.price) {
+            return MessageCodec.EVENT_PRICE;
+        }
+        return 0;
+    }
+}
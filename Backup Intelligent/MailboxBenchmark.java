@@ -0,0 +1,114 @@
+package IntelligentProject;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Receive latency versus mailbox depth
+ * - Template: a reply is found the way Agent.receive(template) finds it, by
+ *   scanning a linked mailbox from the head and testing every message
+ * - Router: ConversationRouter drains the same mailbox from the head and files
+ *   messages by conversation-id
+ * - The mailbox holds a fixed number of unrelated messages; each round one reply
+ *   arrives behind them and is received
+ *
+ * Usage: java IntelligentProject.MailboxBenchmark [rounds]
+ */
+public class MailboxBenchmark {
+    private static final int[] DEPTHS = {0, 100, 1_000, 10_000};
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        System.out.println("Depth    template µs/recv    router µs/recv");
+        for (int pass = 0; pass <= WARMUP_ROUNDS; pass++) {
+            for (int depth : DEPTHS) {
+                double template = templateReceive(depth, rounds);
+                double router = routerReceive(depth, rounds);
+                if (pass == WARMUP_ROUNDS) {
+                    System.out.println(String.format("%-8d %12.3f %17.3f", depth, template, router));
+                }
+            }
+        }
+    }
+
+    private static double templateReceive(int depth, int rounds) {
+        LinkedList<ACLMessage> mailbox = backlog(depth);
+        String conversation = "buyer-negotiate-1";
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            String replyWith = conversation + "." + r;
+            mailbox.add(reply(conversation, replyWith));
+            MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchConversationId(conversation),
+                MessageTemplate.MatchInReplyTo(replyWith));
+            if (scan(mailbox, mt) == null) {
+                throw new IllegalStateException("Reply not found");
+            }
+        }
+        return (System.nanoTime() - start) / 1000.0 / rounds;
+    }
+
+    private static double routerReceive(int depth, int rounds) {
+        final LinkedList<ACLMessage> mailbox = backlog(depth);
+        ConversationRouter router = new ConversationRouter(new ConversationRouter.Mailbox() {
+            @Override
+            public ACLMessage poll() {
+                return mailbox.poll();
+            }
+
+            @Override
+            public ACLMessage poll(long timeoutMs) {
+                return mailbox.poll();
+            }
+        }, "buyer");
+        String conversation = router.open("negotiate");
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            ACLMessage request = new ACLMessage(ACLMessage.PROPOSE);
+            String replyWith = router.prepare(request, conversation);
+            mailbox.add(reply(conversation, replyWith));
+            if (router.receive(conversation) == null) {
+                throw new IllegalStateException("Reply not found");
+            }
+        }
+        return (System.nanoTime() - start) / 1000.0 / rounds;
+    }
+
+    // Same search as JADE's message queue: first match from the head, removed
+    private static ACLMessage scan(LinkedList<ACLMessage> mailbox, MessageTemplate mt) {
+        for (Iterator<ACLMessage> it = mailbox.iterator(); it.hasNext(); ) {
+            ACLMessage msg = it.next();
+            if (mt.match(msg)) {
+                it.remove();
+                return msg;
+            }
+        }
+        return null;
+    }
+
+    // Unrelated messages already waiting (chat, notifications, other conversations)
+    private static LinkedList<ACLMessage> backlog(int depth) {
+        LinkedList<ACLMessage> mailbox = new LinkedList<>();
+        for (int i = 0; i < depth; i++) {
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            msg.setSender(new AID("A.Dealer" + i, AID.ISLOCALNAME));
+            msg.setConversationId("other-" + i);
+            msg.setContent("CHAT " + i);
+            mailbox.add(msg);
+        }
+        return mailbox;
+    }
+
+    private static ACLMessage reply(String conversation, String inReplyTo) {
+        ACLMessage msg = new ACLMessage(ACLMessage.PROPOSE);
+        msg.setSender(new AID("A.Dealer", AID.ISLOCALNAME));
+        msg.setConversationId(conversation);
+        msg.setInReplyTo(inReplyTo);
+        return msg;
+    }
+}
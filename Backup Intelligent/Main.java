@@ -6,6 +6,7 @@ import jade.core.Runtime;
 import jade.wrapper.AgentContainer;
 import jade.wrapper.StaleProxyException;
 import javax.swing.*;
+import java.nio.file.Paths;
 
 /**
  * Core system initializer and agent management hub
@@ -69,14 +70,27 @@ public class Main {
     }
 
     /**
-     * Creates BrokerAgent and monitoring tools
+     * Creates BrokerAgent shards and monitoring tools
+     * - Shard count from the "broker.shards" system property (default 1)
+     * - Each shard drains up to 32 messages per activation, each held at most 20ms
+     * - Worker threads per shard from "broker.workers" (default 0 = agent thread only)
+     * - Deal journals in the "broker.journal.dir" directory, one <shard>-deals.journal
+     *   per shard (default: no journal)
      */
     private static void createBroker() throws StaleProxyException {
-        mainContainer.createNewAgent(
-            "BrokerAgent", 
-            "IntelligentProject.BrokerAgent", 
-            null
-        ).start();
+        BrokerRouter.setShardCount(Integer.getInteger("broker.shards", 1));
+        String journalDir = System.getProperty("broker.journal.dir");
+        for (int shard = 0; shard < BrokerRouter.getShardCount(); shard++) {
+            String journal = journalDir == null ? "off"
+                : Paths.get(journalDir, BrokerRouter.shardName(shard) + "-deals.journal").toString();
+            mainContainer.createNewAgent(
+                BrokerRouter.shardName(shard), 
+                "IntelligentProject.BrokerAgent", 
+                new Object[]{"batchSize=32", "maxBatchLatencyMs=20",
+                    "workers=" + Integer.getInteger("broker.workers", 0),
+                    "journal=" + journal}
+            ).start();
+        }
         createSniffer();    // Message monitoring agent
     }
     
@@ -95,8 +109,8 @@ public class Main {
      * Creates initial dealer agents for automated negotiation
      */
     private static void createInitialDealers() throws StaleProxyException {
-        // Name, CarType, Price
-        createDealer("A.Dealer1", "Toyota", 30000);
+        // Name, CarType, Price (one in stock) or Name, "CarType:Price:Stock;..."
+        createDealer("A.Dealer1", "Toyota:30000:2;Vios:27000:1");
         createDealer("A.Dealer2", "Honda", 25000);
         createDealer("A.Dealer3", "Toyota", 28000);
         createDealer("A.Dealer4", "Bezza", 33000);
@@ -108,11 +122,11 @@ public class Main {
      * Creates initial buyer agents for automated negotiation
      */
     private static void createInitialBuyers() throws StaleProxyException {
-        // Name, CarType, Offer, Budget
+        // Name, CarType, Offer, Budget[, Dealers negotiated with at once]
         createBuyer("A.Buyer1", "Toyota", 20000, 25000);
-        createBuyer("A.Buyer2", "Toyota", 22000, 27000);
+        createAuctionBuyer("A.Buyer2", "Toyota", 22000, 27000);
         createBuyer("A.Buyer3", "Honda", 18000, 23000);
-        createBuyer("A.Buyer4", "Toyota", 30000, 45000);
+        createBuyer("A.Buyer4", "Toyota", 30000, 45000, 2);
         createBuyer("A.Buyer5", "Honda", 16000, 26000);
         createBuyer("A.Buyer6", "Bezza", 19000, 23000);
         createBuyer("A.Buyer7", "Hilux", 28000, 33000);
@@ -135,6 +149,21 @@ public class Main {
         ).start();
     }
 
+    /**
+     * Factory method for creating dealer agents with a multi-car inventory
+     * @param name Agent unique identifier
+     * @param inventory "CarType:Price:Stock" entries separated by ';'
+     */
+    public static void createDealer(String name, String inventory) 
+            throws StaleProxyException {
+        Object[] args = new Object[]{inventory};
+        mainContainer.createNewAgent(
+            name, 
+            "IntelligentProject.DealerAgent", 
+            args
+        ).start();
+    }
+
     /**
      * Factory method for creating buyer agents
      * @param name Agent unique identifier
@@ -151,4 +180,39 @@ public class Main {
             args
         ).start();
     }
+
+    /**
+     * Factory method for buyer agents negotiating with several dealers at once
+     * @param name Agent unique identifier
+     * @param car Desired vehicle type
+     * @param offer Initial negotiation offer
+     * @param budget Maximum spending limit
+     * @param dealers Dealers negotiated with in parallel (best deal wins)
+     */
+    public static void createBuyer(String name, String car, int offer, int budget, int dealers) 
+            throws StaleProxyException {
+        Object[] args = new Object[]{car, offer, budget, dealers};
+        mainContainer.createNewAgent(
+            name, 
+            "IntelligentProject.BuyerAgent", 
+            args
+        ).start();
+    }
+
+    /**
+     * Factory method for buyer agents that let the broker auction the car
+     * @param name Agent unique identifier
+     * @param car Desired vehicle type
+     * @param offer Initial negotiation offer (unused by the auction)
+     * @param budget Maximum spending limit (highest bid accepted)
+     */
+    public static void createAuctionBuyer(String name, String car, int offer, int budget) 
+            throws StaleProxyException {
+        Object[] args = new Object[]{car, offer, budget, "auction"};
+        mainContainer.createNewAgent(
+            name, 
+            "IntelligentProject.BuyerAgent", 
+            args
+        ).start();
+    }
 }
\ No newline at end of file
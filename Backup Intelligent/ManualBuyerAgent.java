@@ -4,7 +4,6 @@ import jade.core.AID;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.util.LinkedList;
@@ -38,6 +37,11 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
     private final Queue<ACLMessage> outgoingMessages = new LinkedList<>();
     private Map<String, Boolean> dealStatus = new ConcurrentHashMap<>();
     private Map<String, Boolean> buyerAcceptances = new ConcurrentHashMap<>();
+    private static final int DEALER_PAGE_SIZE = 50;	// Cheapest dealers requested per broker query
+    private static final long BROKER_QUERY_TIMEOUT_MS = 3000;
+    private final PendingReplies brokerQueries = new PendingReplies(this);	// Broker queries in flight
+    private long querySequence = 0;	// Numbers feed subscriptions
+    private String feedConversation;	// Conversation-id of the broker listing feed (null if none)
     
     /**
      * Adds offer to processing queue (O2A communication)
@@ -137,7 +141,7 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
             GUI.getDealerAcceptance(dealerName, getLocalName())) {
             
             ACLMessage brokerMsg = new ACLMessage(ACLMessage.INFORM);
-            brokerMsg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
+            brokerMsg.addReceiver(BrokerRouter.brokerFor(carType));
             brokerMsg.setContent(getLocalName() + "," + dealerName + "," + 
                                carType + "," + reservePrice);
             send(brokerMsg);
@@ -148,34 +152,55 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
     }
     
     /**
-     * Behavior for handling chat messages
+     * Routes each incoming message to one handler
+     * - Reply to a broker query in flight: its continuation (see PendingReplies)
+     * - Reply to a query that already timed out or was answered: dropped and logged,
+     *   so a stale result never replaces the matches table
+     * - INFORM from a broker: listing feed events or dealer matches; other INFORM: chat
+     * - AGREE/REFUSE from a broker: answer to the feed subscription
+     * - ACCEPT/REJECT proposal: dealer's deal response
      */
-    private class ChatHandler extends CyclicBehaviour {
-        public void action() {
-            MessageTemplate mt = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
-                MessageTemplate.not(MessageTemplate.MatchSender(new AID("BrokerAgent", AID.ISLOCALNAME))
-            ));
-            
-            ACLMessage msg = myAgent.receive(mt);
-            if (msg != null) {
-                String content = msg.getContent();
-                String sender = msg.getSender().getLocalName();
-                
-                // Add to message queue for chat window
-                synchronized (messageQueue) {
-                    messageQueue.add(msg);
-                }
-                
-                // Update receiver's chat area via GUI
-                SwingUtilities.invokeLater(() -> {
-                    GUI.updateChatSession(sender, myAgent.getLocalName(), content);
-                });
-            } else {
-                block();
-            }
+    private String classify(ACLMessage msg) {
+        if (brokerQueries.isReply(msg)) {
+            return "query-reply";
+        }
+        if (brokerQueries.isLate(msg)) {
+            return "late-reply";
+        }
+        boolean fromBroker = msg.getSender() != null && BrokerRouter.isBroker(msg.getSender().getLocalName());
+        switch (msg.getPerformative()) {
+            case ACLMessage.INFORM:
+                if (!fromBroker) return "chat";
+                return MessageKind.LISTING_EVENTS.equals(MessageKind.of(msg)) ? "listing-events" : "dealer-matches";
+            case ACLMessage.AGREE:
+            case ACLMessage.REFUSE:
+                return fromBroker ? "subscription" : MessageKind.UNKNOWN;
+            case ACLMessage.ACCEPT_PROPOSAL:
+            case ACLMessage.REJECT_PROPOSAL:
+                return "deal-response";
+            default:
+                return MessageKind.UNKNOWN;
         }
     }
+
+    /**
+     * Handles chat messages
+     * @param msg INFORM from a dealer
+     */
+    private void handleChat(ACLMessage msg) {
+        String content = msg.getContent();
+        String sender = msg.getSender().getLocalName();
+        
+        // Add to message queue for chat window
+        synchronized (messageQueue) {
+            messageQueue.add(msg);
+        }
+        
+        // Update receiver's chat area via GUI
+        SwingUtilities.invokeLater(() -> {
+            GUI.updateChatSession(sender, getLocalName(), content);
+        });
+    }
     
     /**
      * Behavior for logging manual interactions
@@ -188,7 +213,7 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
                 GUI.logInteraction(msg.getSender().getLocalName(), 
                                  getLocalName(),
                                  performative,
-                                 msg.getContent());
+                                 MessageCodec.describe(msg));
             }
             block();
         }
@@ -210,7 +235,7 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
             
             // Register with broker
             ACLMessage registration = new ACLMessage(ACLMessage.INFORM);
-            registration.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
+            registration.addReceiver(BrokerRouter.primary());
             registration.setContent("REGISTER");
             send(registration);
 
@@ -256,93 +281,35 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
                 }
             });
             
-            addBehaviour(new ChatHandler());
+            // One behaviour for every message and GUI command
+            addBehaviour(new MessageDispatcher(this, this::classify)
+                .on("chat", this::handleChat)
+                .on("dealer-matches", msg -> {
+                    processDealerMatches(msg.getContent());
+                    GUI.logInteraction(msg.getSender().getLocalName(), getLocalName(), "INFORM", msg.getContent());
+                })
+                .on("query-reply", brokerQueries::complete)
+                .on("late-reply", brokerQueries::dropLate)
+                .on("listing-events", this::handleListingEvents)
+                .on("subscription", msg -> updateStatus(msg.getPerformative() == ACLMessage.AGREE
+                    ? "Watching " + carType + " listings" : "Listing feed refused"))
+                .on("deal-response", this::handleDealResponse)
+                .onCommand("QUERY_BROKER", cmd -> startBrokerQuery())
+                .onCommand("NOTIFY_BROKER", cmd -> {
+                    if (cmd.length > 2 && cmd[2] != null) {
+                        notifyBrokerOfDeal((String) cmd[1], (String) cmd[2]);
+                    } else {
+                        GUI.logMessage(getLocalName(), "⚠️ Deal with " + cmd[1] + " not confirmed: no deal ID");
+                    }
+                })
+                .onCommand("NOTIFY_BROKER_REJECT", cmd -> notifyBrokerOfRejection((String) cmd[1]))
+                .onOutgoing(this::send));
 
-            // Automatically query broker on startup
+            // Subscribe to matching listings on startup (the first update fills the table)
             addBehaviour(new OneShotBehaviour() {
                 @Override
                 public void action() {
-                    queryBrokerForDealers();
-                }
-            });
-            
-            // Add response listener
-            addBehaviour(new CyclicBehaviour(this) {
-                public void action() {
-                    MessageTemplate mt = MessageTemplate.or(
-                        MessageTemplate.MatchPerformative(ACLMessage.ACCEPT_PROPOSAL),
-                        MessageTemplate.MatchPerformative(ACLMessage.REJECT_PROPOSAL)
-                    );
-                    ACLMessage msg = receive(mt);
-                    if (msg != null) {
-                        handleDealerResponse(msg);
-                    } else {
-                        block();
-                    }
-                }
-            });
-            
-            addBehaviour(new DealResponseHandler()); 
-            
-            // Accept button
-            addBehaviour(new CyclicBehaviour(this) {
-                public void action() {
-                    Object obj = getO2AObject();
-                    if (obj != null && obj instanceof Object[]) {
-                        Object[] cmd = (Object[]) obj;
-                        if ("NOTIFY_BROKER".equals(cmd[0])) {
-                            String dealerName = (String) cmd[1];
-                            for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
-                                if (dealerName.equals(dealerMatchesModel.getValueAt(i, 0))) {
-                                    String price = dealerMatchesModel.getValueAt(i, 1).toString();
-                                    ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
-                                    inform.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                                    inform.setContent("DEAL_CONFIRMED," + getLocalName() + "," + dealerName + "," + carType + "," + price);
-                                    send(inform);
-                                    break;
-                                }
-                            }
-                        }
-                    } else {
-                        block();
-                    }
-                }
-            });
-            
-            // Reject button
-            addBehaviour(new CyclicBehaviour(this) {
-                public void action() {
-                    Object obj = getO2AObject();
-                    if (obj instanceof Object[]) {
-                        Object[] cmd = (Object[]) obj;
-                        if ("NOTIFY_BROKER_REJECT".equals(cmd[0])) {
-                            String dealer = (String) cmd[1];
-                            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-                            msg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                            msg.setContent("DEAL_REJECTED," + getLocalName() + "," + dealer + "," + carType);
-                            send(msg);
-                        }
-                    }
-                    block();
-                }
-            });
-            
-            addBehaviour(new CyclicBehaviour(this) {
-                public void action() {
-                	ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.INFORM));
-                    if (msg != null) {
-                        synchronized(messageQueue) {
-                            messageQueue.add(msg);
-                        }
-                        SwingUtilities.invokeLater(() -> {
-                            GUI.updateChatSession(
-                                msg.getSender().getLocalName(),
-                                getLocalName(),
-                                msg.getContent()
-                            );
-                        });
-                    }
-                    block(1000);
+                    subscribeToDealers();
                 }
             });
 
@@ -358,73 +325,97 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
     }
     
     /**
-     * Behavior for handling deal responses
+     * Sends the confirmed deal to the broker (GUI "NOTIFY_BROKER" command)
+     * @param dealerName Dealer the deal was made with
+     * @param dealId The negotiation's deal ID (GUI.manualDealId()); commands without one are refused
      */
-    private class DealResponseHandler extends CyclicBehaviour {
-        public void action() {
-            MessageTemplate mt = MessageTemplate.or(
-                MessageTemplate.MatchPerformative(ACLMessage.ACCEPT_PROPOSAL),
-                MessageTemplate.MatchPerformative(ACLMessage.REJECT_PROPOSAL)
-            );
+    private void notifyBrokerOfDeal(String dealerName, String dealId) {
+        for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
+            if (dealerName.equals(dealerMatchesModel.getValueAt(i, 0))) {
+                String price = dealerMatchesModel.getValueAt(i, 1).toString();
+                ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
+                inform.addReceiver(BrokerRouter.brokerFor(carType));
+                MessageKind.tag(inform, MessageKind.DEAL_CONFIRMED);
+                inform.setByteSequenceContent(MessageCodec.dealConfirmed(
+                    getLocalName(), dealerName, carType, Integer.parseInt(price)));
+                inform.addUserDefinedParameter(BrokerAgent.DEAL_ID, dealId);
+                send(inform);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Sends the rejected deal to the broker (GUI "NOTIFY_BROKER_REJECT" command)
+     * @param dealer Dealer whose deal was rejected
+     */
+    private void notifyBrokerOfRejection(String dealer) {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(BrokerRouter.brokerFor(carType));
+        MessageKind.tag(msg, MessageKind.DEAL_REJECTED);
+        msg.setByteSequenceContent(MessageCodec.dealRejected(getLocalName(), dealer, carType));
+        send(msg);
+    }
+
+    /**
+     * Handles a dealer's deal response
+     * @param msg ACCEPT_PROPOSAL or REJECT_PROPOSAL from a dealer
+     */
+    private void handleDealResponse(ACLMessage msg) {
+        String dealerName = msg.getSender().getLocalName();
+        String response = msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL 
+            ? "accepted" : "rejected";
+        
+        GUI.logMessage(getLocalName(), "Deal " + response + " by " + dealerName);
+        
+        if (msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL) {
+            // Record dealer's acceptance
+            GUI.recordAcceptance(dealerName, getLocalName(), true);
             
-            ACLMessage msg = myAgent.receive(mt);
-            if (msg != null) {
-                String dealerName = msg.getSender().getLocalName();
-                String response = msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL 
-                    ? "accepted" : "rejected";
-                
-                GUI.logMessage(getLocalName(), "Deal " + response + " by " + dealerName);
+            // Check if buyer has accepted this dealer
+            if (GUI.getBuyerAcceptance(getLocalName(), dealerName)) {
+                // Notify broker
+                ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
+                inform.addReceiver(BrokerRouter.brokerFor(carType));
                 
-                if (msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL) {
-                    // Record dealer's acceptance
-                    GUI.recordAcceptance(dealerName, getLocalName(), true);
-                    
-                    // Check if buyer has accepted this dealer
-                    if (GUI.getBuyerAcceptance(getLocalName(), dealerName)) {
-                        // Notify broker
-                        ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
-                        inform.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                        
-                        // Find the dealer's price from the model
-                        for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
-                            if (dealerMatchesModel.getValueAt(i, 0).equals(dealerName)) {
-                                String price = dealerMatchesModel.getValueAt(i, 1).toString();
-                                inform.setContent(getLocalName() + "," + dealerName + "," + price);
-                                break;
-                            }
-                        }
-                        
-                        send(inform);
-                        GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", 
-                            "Deal confirmed with " + dealerName);
+                // Find the dealer's price from the model
+                for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
+                    if (dealerMatchesModel.getValueAt(i, 0).equals(dealerName)) {
+                        String price = dealerMatchesModel.getValueAt(i, 1).toString();
+                        inform.setContent(getLocalName() + "," + dealerName + "," + price);
+                        break;
                     }
                 }
                 
-                SwingUtilities.invokeLater(() -> {
-                    updateDealerStatus(dealerName, 
-                        msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL 
-                            ? "Accepted" 
-                            : "Rejected");
-                });
-            }
-            else {
-                block();
+                send(inform);
+                GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", 
+                    "Deal confirmed with " + dealerName);
             }
         }
         
-        /**
-         * Updates dealer status in table
-         * @param dealerName The dealer name
-         * @param status New status text
-         */
-        private void updateDealerStatus(String dealerName, String status) {
-            for(int i=0; i<dealerMatchesModel.getRowCount(); i++) {
-                if(dealerMatchesModel.getValueAt(i, 0).equals(dealerName)) {
+        updateDealerStatus(dealerName, 
+            msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL 
+                ? "Accepted" 
+                : "Rejected");
+    }
+
+    /**
+     * Updates dealer status in table
+     * @param dealerName The dealer name
+     * @param status New status text
+     */
+    private void updateDealerStatus(String dealerName, String status) {
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
+                if (dealerMatchesModel.getValueAt(i, 0).equals(dealerName)) {
                     dealerMatchesModel.setValueAt(status, i, 3);
+                    // Force full refresh of the row
+                    dealerMatchesModel.fireTableRowsUpdated(i, i);
+                    dealerMatchesModel.setValueAt("", i, 4);
                     break;
                 }
             }
-        }
+        });
     }
 
     /**
@@ -466,7 +457,7 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
         try {
             ACLMessage propose = new ACLMessage(ACLMessage.PROPOSE);
             propose.addReceiver(new AID(dealerName, AID.ISLOCALNAME));
-            propose.setContent("MANUAL_PROPOSE:" +carType + "," + initialOffer);
+            propose.setByteSequenceContent(MessageCodec.manualPropose(carType, initialOffer));
             send(propose);
             
             // Add explicit interaction logging
@@ -479,75 +470,138 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
     }
     
     /**
-     * Handles dealer response messages
-     * @param msg The response message
+     * Queries broker for matching dealers
+     * - Safe from any thread: hands a "QUERY_BROKER" command to the agent
+     *   through O2A and returns at once (see startBrokerQuery())
      */
-    private void handleDealerResponse(ACLMessage msg) {
-        String dealerName = msg.getSender().getLocalName();
-        String status;
-        switch (msg.getPerformative()) {
-            case ACLMessage.ACCEPT_PROPOSAL:
-                status = "Negotiating...";
-                break;
-            case ACLMessage.REJECT_PROPOSAL:
-                status = "Rejected";
-                break;
-            default:
-                status = "Unknown";
+    @Override
+    public void queryBrokerForDealers() {
+        try {
+            putO2AObject(new Object[]{"QUERY_BROKER"}, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        // Update GUI
-        SwingUtilities.invokeLater(() -> {
-            for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
-                if (dealerMatchesModel.getValueAt(i, 0).equals(dealerName)) {
-                    dealerMatchesModel.setValueAt(status, i, 3);
-                    // Force full refresh of the row
-                    dealerMatchesModel.fireTableRowsUpdated(i, i);
-                    dealerMatchesModel.setValueAt("", i, 4);
-                    break;
-                }
-            }
-        });
     }
 
     /**
-     * Queries broker for matching dealers
+     * Sends the dealer query without waiting for the answer
+     * - The reply fills the dealer table when it arrives; after
+     *   BROKER_QUERY_TIMEOUT_MS a WakerBehaviour reports the timeout instead
+     * - Chat, deal responses and GUI commands keep being handled meanwhile
      */
-    @Override
-    public void queryBrokerForDealers() {
+    private void startBrokerQuery() {
         try {
             ACLMessage query = new ACLMessage(ACLMessage.QUERY_IF);
-            query.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-            query.setContent(carType.trim().toLowerCase() + "," + reservePrice);
-            send(query);
-            
-            ACLMessage msg = new ACLMessage(ACLMessage.QUERY_REF);
-            msg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-            msg.setContent("REQUEST_DEALERS:" + carType);
-            send(msg);
+            query.addReceiver(BrokerRouter.brokerFor(carType));
+            MessageKind.tag(query, MessageKind.DEALER_QUERY);
+            query.setContent(carType.trim().toLowerCase() + "," + reservePrice + "," + DEALER_PAGE_SIZE + ",0");
+            brokerQueries.send(query, "query", BROKER_QUERY_TIMEOUT_MS,
+                response -> {
+                    processDealerMatches(response.getContent());
+                    GUI.logInteraction("BrokerAgent", getLocalName(), "INFORM", response.getContent());
+                },
+                () -> updateStatus("No broker response - Retrying..."));
+            updateStatus("Querying broker for dealers...");
             
             // Log the interaction
             GUI.logInteraction(getLocalName(), "BrokerAgent", "REQUEST", "Dealer query for " + carType);
-
-            ACLMessage response = blockingReceive(
-                MessageTemplate.and(
-                    MessageTemplate.MatchSender(new AID("BrokerAgent", AID.ISLOCALNAME)),
-                    MessageTemplate.MatchPerformative(ACLMessage.INFORM)
-                ), 
-                3000 // 3-second timeout
-            );
-
-            if (response != null) {
-                processDealerMatches(response.getContent());
-                GUI.logInteraction("BrokerAgent", getLocalName(), "INFORM", response.getContent());
-            } else {
-                updateStatus("No broker response - Retrying...");
-            }
         } catch (Exception e) {
             GUI.logMessage(getLocalName(), "⚠️ Broker query failed: " + e.getMessage());
         }
     }
 
+    /**
+     * Registers a standing subscription for dealers within budget
+     * - The broker answers AGREE, then pushes LISTING_EVENTS in the feed conversation
+     */
+    private void subscribeToDealers() {
+        try {
+            feedConversation = getLocalName() + "-feed-" + (++querySequence);
+            ACLMessage subscribe = new ACLMessage(ACLMessage.SUBSCRIBE);
+            subscribe.addReceiver(BrokerRouter.brokerFor(carType));
+            MessageKind.tag(subscribe, MessageKind.SUBSCRIPTION);
+            subscribe.setConversationId(feedConversation);
+            subscribe.setContent(carType.trim().toLowerCase() + "," + reservePrice);
+            send(subscribe);
+            GUI.logInteraction(getLocalName(), "BrokerAgent", "SUBSCRIBE", carType + "," + reservePrice);
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Broker subscription failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies listing feed events to the dealer table
+     * @param msg INFORM with LISTING_EVENTS (event, dealer, price per entry)
+     * - ADD inserts the dealer in price order (or updates its price)
+     * - REMOVE drops the row, or marks it "Withdrawn" if a negotiation is under way
+     * - PRICE updates the row's price
+     */
+    private void handleListingEvents(ACLMessage msg) {
+        if (feedConversation == null || !feedConversation.equals(msg.getConversationId())) {
+            return;	// Feed from an earlier subscription
+        }
+        MessageCodec.Reader feed = MessageCodec.reader();
+        if (!feed.read(msg, MessageCodec.LISTING_EVENTS)) {
+            GUI.logMessage(getLocalName(), "⚠️ Invalid listing update: " + MessageCodec.describe(msg));
+            return;
+        }
+        // Copy out of the reader before leaving the agent thread
+        int count = feed.entries();
+        int[] events = new int[count];
+        String[] dealers = new String[count];
+        int[] prices = new int[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = feed.integer(i * 3);
+            dealers[i] = feed.string(i * 3 + 1);
+            prices[i] = feed.integer(i * 3 + 2);
+        }
+        GUI.logInteraction(msg.getSender().getLocalName(), getLocalName(), "INFORM", MessageCodec.describe(msg));
+
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < count; i++) {
+                int row = rowOf(dealers[i]);
+                if (events[i] == MessageCodec.EVENT_REMOVE) {
+                    if (row < 0) continue;
+                    if ("".equals(dealerMatchesModel.getValueAt(row, 3))) {
+                        dealerMatchesModel.removeRow(row);
+                    } else {
+                        dealerMatchesModel.setValueAt("Withdrawn", row, 3);
+                    }
+                } else if (row >= 0) {
+                    dealerMatchesModel.setValueAt(prices[i], row, 1);
+                } else {
+                    dealerMatchesModel.insertRow(insertPosition(prices[i]), new Object[]{
+                        dealers[i], prices[i], "Send Request", ""
+                    });
+                }
+            }
+            updateStatus(dealerMatchesModel.getRowCount() > 0
+                ? dealerMatchesModel.getRowCount() + " matching dealers (live)"
+                : "No dealers within budget");
+        });
+    }
+
+    // Table row of a dealer, or -1 (Swing thread only)
+    private int rowOf(String dealerName) {
+        for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
+            if (dealerName.equals(dealerMatchesModel.getValueAt(i, 0))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // First row priced above the given price, keeping the table cheapest first (Swing thread only)
+    private int insertPosition(int price) {
+        for (int i = 0; i < dealerMatchesModel.getRowCount(); i++) {
+            Object rowPrice = dealerMatchesModel.getValueAt(i, 1);
+            if (rowPrice instanceof Integer && (Integer) rowPrice > price) {
+                return i;
+            }
+        }
+        return dealerMatchesModel.getRowCount();
+    }
+
     /**
      * Processes dealer matches from broker
      * @param content The broker response content
@@ -604,7 +658,7 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
         try {
             ACLMessage propose = new ACLMessage(ACLMessage.PROPOSE);
             propose.addReceiver(new AID(dealerName, AID.ISLOCALNAME));
-            propose.setContent(carType + "," + initialOffer);
+            propose.setByteSequenceContent(MessageCodec.offer(carType, initialOffer));
             send(propose);
             
             GUI.logInteraction(getLocalName(), dealerName, "PROPOSE", carType + "," + initialOffer);
@@ -665,6 +719,13 @@ public class ManualBuyerAgent extends BuyerAgent implements IManualBuyerAgent {
      */
     @Override
     protected void takeDown() {
+        if (feedConversation != null) {
+            ACLMessage cancel = new ACLMessage(ACLMessage.CANCEL);
+            cancel.addReceiver(BrokerRouter.brokerFor(carType));
+            MessageKind.tag(cancel, MessageKind.SUBSCRIPTION);
+            cancel.setConversationId(feedConversation);
+            send(cancel);
+        }
         GUI.logMessage(getLocalName(), "🔚 Terminating buyer agent");
         super.takeDown();
     }
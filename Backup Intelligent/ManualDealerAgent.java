@@ -4,7 +4,6 @@ import jade.core.AID;
 import jade.core.behaviours.OneShotBehaviour;
 import jade.core.Agent;
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.MessageTemplate;
 import jade.core.behaviours.CyclicBehaviour;
 import javax.swing.*;
 import java.util.*;
@@ -108,7 +107,7 @@ public class ManualDealerAgent extends Agent implements IManualDealerAgent {
             GUI.getBuyerAcceptance(buyerName, getLocalName())) {
             
             ACLMessage brokerMsg = new ACLMessage(ACLMessage.INFORM);
-            brokerMsg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
+            brokerMsg.addReceiver(BrokerRouter.brokerFor(carType));
             brokerMsg.setContent(buyerName + "," + getLocalName() + "," + 
                                carType + "," + listPrice);
             send(brokerMsg);
@@ -159,60 +158,34 @@ public class ManualDealerAgent extends Agent implements IManualDealerAgent {
             });
 
             // Add behaviors
-            addBehaviour(new ChatMessageHandler());
-            addBehaviour(new ProposalHandler());
+            // One behaviour for every message and GUI command
+            addBehaviour(new MessageDispatcher(this, this::classify)
+                .on("chat", this::handleChat)
+                .on("proposal", this::handleProposal)
+                .on("deal-response", this::handleDealResponse)
+                .onCommand("NOTIFY_BROKER", cmd -> {
+                    if (cmd.length > 2 && cmd[2] != null) {
+                        notifyBrokerOfDeal((String) cmd[1], (String) cmd[2]);
+                    } else {
+                        GUI.logMessage(getLocalName(), "⚠️ Deal with " + cmd[1] + " not confirmed: no deal ID");
+                    }
+                })
+                .onCommand("NOTIFY_BROKER_REJECT", cmd -> notifyBrokerOfRejection((String) cmd[1]))
+                .onOutgoing(this::send));
 //            addBehaviour(new RegistrationHandler());
             // Replace the RegistrationHandler with this:
             addBehaviour(new OneShotBehaviour() {
                 public void action() {
                     ACLMessage registration = new ACLMessage(ACLMessage.INFORM);
-                    registration.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                    registration.setContent(carType.toLowerCase() + "," + listPrice);
+                    registration.addReceiver(BrokerRouter.brokerFor(carType));
+                    MessageKind.tag(registration, MessageKind.LISTING);
+                    registration.setByteSequenceContent(MessageCodec.listing(carType.toLowerCase(), listPrice));
                     send(registration);
                     GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", 
                             carType + "," + listPrice);
                 }
             });
             addBehaviour(new ConnectionMonitor());
-            addBehaviour(new DealHandler());     
-            
-            // Accept button
-            addBehaviour(new CyclicBehaviour(this) {
-                public void action() {
-                    Object obj = getO2AObject();
-                    if (obj != null && obj instanceof Object[]) {
-                        Object[] cmd = (Object[]) obj;
-                        if ("NOTIFY_BROKER".equals(cmd[0])) {
-                            String buyerName = (String) cmd[1];
-                            ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
-                            inform.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                            inform.setContent("DEAL_CONFIRMED," + buyerName + "," + getLocalName() + "," + carType + "," + listPrice);
-                            send(inform);
-                        }
-                    } else {
-                        block();
-                    }
-                }
-            });
-            
-            // Reject button
-            addBehaviour(new CyclicBehaviour(this) {
-                public void action() {
-                    Object obj = getO2AObject();
-                    if (obj != null && obj instanceof Object[]) {
-                        Object[] cmd = (Object[]) obj;
-                        if ("NOTIFY_BROKER_REJECT".equals(cmd[0])) {
-                            String buyerName = (String) cmd[1];
-                            ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
-                            inform.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                            inform.setContent("DEAL_REJECTED," + buyerName + "," + getLocalName() + "," + carType);
-                            send(inform);
-                        }
-                    } else {
-                        block();
-                    }
-                }
-            });
 
             GUI.logMessage(getLocalName(), "🏪 Dealer initialized for " + carType + " @ $" + listPrice);
         } catch (Exception e) {
@@ -222,69 +195,96 @@ public class ManualDealerAgent extends Agent implements IManualDealerAgent {
     }
     
     /**
-     * Behavior for handling deal acceptance/rejection
+     * Routes each incoming message to one handler
+     * - INFORM not from a broker: chat
+     * - PROPOSE: buyer's purchase request
+     * - ACCEPT/REJECT proposal: buyer's deal response
      */
-    private class DealHandler extends CyclicBehaviour {
-        public void action() {
-            ACLMessage msg = receive(MessageTemplate.or(
-                MessageTemplate.MatchPerformative(ACLMessage.ACCEPT_PROPOSAL),
-                MessageTemplate.MatchPerformative(ACLMessage.REJECT_PROPOSAL)
-            ));
+    private String classify(ACLMessage msg) {
+        switch (msg.getPerformative()) {
+            case ACLMessage.INFORM:
+                return msg.getSender() != null && BrokerRouter.isBroker(msg.getSender().getLocalName())
+                    ? MessageKind.UNKNOWN : "chat";
+            case ACLMessage.PROPOSE:
+                return "proposal";
+            case ACLMessage.ACCEPT_PROPOSAL:
+            case ACLMessage.REJECT_PROPOSAL:
+                return "deal-response";
+            default:
+                return MessageKind.UNKNOWN;
+        }
+    }
+
+    /**
+     * Sends the confirmed deal to the broker (GUI "NOTIFY_BROKER" command)
+     * @param buyerName Buyer the deal was made with
+     * @param dealId The negotiation's deal ID (GUI.manualDealId()); commands without one are refused
+     */
+    private void notifyBrokerOfDeal(String buyerName, String dealId) {
+        ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
+        inform.addReceiver(BrokerRouter.brokerFor(carType));
+        MessageKind.tag(inform, MessageKind.DEAL_CONFIRMED);
+        inform.setByteSequenceContent(MessageCodec.dealConfirmed(buyerName, getLocalName(), carType, listPrice));
+        inform.addUserDefinedParameter(BrokerAgent.DEAL_ID, dealId);
+        send(inform);
+    }
+
+    /**
+     * Sends the rejected deal to the broker (GUI "NOTIFY_BROKER_REJECT" command)
+     * @param buyerName Buyer whose deal was rejected
+     */
+    private void notifyBrokerOfRejection(String buyerName) {
+        ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
+        inform.addReceiver(BrokerRouter.brokerFor(carType));
+        MessageKind.tag(inform, MessageKind.DEAL_REJECTED);
+        inform.setByteSequenceContent(MessageCodec.dealRejected(buyerName, getLocalName(), carType));
+        send(inform);
+    }
+
+    /**
+     * Handles a buyer's deal acceptance/rejection
+     * @param msg ACCEPT_PROPOSAL or REJECT_PROPOSAL from a buyer
+     */
+    private void handleDealResponse(ACLMessage msg) {
+        String buyerName = msg.getSender().getLocalName();
+        String status = msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL 
+            ? "Accepted" : "Rejected";
+        
+        GUI.logMessage(getLocalName(), "Deal " + status.toLowerCase() + " by " + buyerName);
+        
+        if (msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL) {
+            // Record buyer's acceptance
+            GUI.recordAcceptance(buyerName, getLocalName(), true);
             
-            if (msg != null) {
-                String buyerName = msg.getSender().getLocalName();
-                String status = msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL 
-                    ? "Accepted" : "Rejected";
-                
-                GUI.logMessage(getLocalName(), "Deal " + status.toLowerCase() + " by " + buyerName);
+            // Check if dealer has accepted this buyer
+            if (GUI.getDealerAcceptance(getLocalName(), buyerName)) {
+                // Notify broker
+                ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
+                inform.addReceiver(BrokerRouter.brokerFor(carType));
                 
-                if (msg.getPerformative() == ACLMessage.ACCEPT_PROPOSAL) {
-                    // Record buyer's acceptance
-                    GUI.recordAcceptance(buyerName, getLocalName(), true);
-                    
-                    // Check if dealer has accepted this buyer
-                    if (GUI.getDealerAcceptance(getLocalName(), buyerName)) {
-                        // Notify broker
-                        ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
-                        inform.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                        
-                        // Find the buyer's offer from the model
-                        for (int i = 0; i < requestModel.getRowCount(); i++) {
-                            if (requestModel.getValueAt(i, 0).equals(buyerName)) {
-                                String price = requestModel.getValueAt(i, 2).toString();
-                                inform.setContent(buyerName + "," + getLocalName() + "," + price);
-                                break;
-                            }
-                        }
-                        
-                        send(inform);
-                        GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", 
-                            "Deal confirmed with " + buyerName);
+                // Find the buyer's offer from the model
+                for (int i = 0; i < requestModel.getRowCount(); i++) {
+                    if (requestModel.getValueAt(i, 0).equals(buyerName)) {
+                        String price = requestModel.getValueAt(i, 2).toString();
+                        inform.setContent(buyerName + "," + getLocalName() + "," + price);
+                        break;
                     }
                 }
                 
-                SwingUtilities.invokeLater(() -> {
-                    for(int i=0; i<requestModel.getRowCount(); i++) {
-                        if(requestModel.getValueAt(i, 0).equals(buyerName)) {
-                            requestModel.setValueAt(status, i, 3);
-                            break;
-                        }
-                    }
-                });
-            }
-            else {
-                block();
+                send(inform);
+                GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM", 
+                    "Deal confirmed with " + buyerName);
             }
         }
         
-        private void removeBuyerRequest(String buyerName) {
+        SwingUtilities.invokeLater(() -> {
             for(int i=0; i<requestModel.getRowCount(); i++) {
                 if(requestModel.getValueAt(i, 0).equals(buyerName)) {
-                    requestModel.removeRow(i);
+                    requestModel.setValueAt(status, i, 3);
                     break;
                 }
             }
-        }
+        });
     }
     
     // Deal status tracking
@@ -309,77 +309,55 @@ public class ManualDealerAgent extends Agent implements IManualDealerAgent {
     }
     
     /**
-     * Behavior for handling chat messages
+     * Handles chat messages
+     * @param msg INFORM from a buyer
      */
-    private class ChatMessageHandler extends CyclicBehaviour {
-        public void action() {
-            MessageTemplate mt = MessageTemplate.and(
-                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
-                MessageTemplate.not(MessageTemplate.MatchSender(new AID("BrokerAgent", AID.ISLOCALNAME))
-            ));
-            
-            ACLMessage msg = myAgent.receive(mt);
-            if (msg != null) {
-                String content = msg.getContent();
-                String sender = msg.getSender().getLocalName();
-                
-                synchronized (messageQueue) {
-                    messageQueue.add(msg);
-                }
-                
-                SwingUtilities.invokeLater(() -> {
-                    GUI.updateChatSession(sender, myAgent.getLocalName(), content);
-                });
-            } else {
-                block();
-            }
+    private void handleChat(ACLMessage msg) {
+        String content = msg.getContent();
+        String sender = msg.getSender().getLocalName();
+        
+        synchronized (messageQueue) {
+            messageQueue.add(msg);
         }
+        
+        SwingUtilities.invokeLater(() -> {
+            GUI.updateChatSession(sender, getLocalName(), content);
+        });
     }
 
     /**
-     * Behavior for handling purchase proposals
+     * Handles purchase proposals
+     * @param msg PROPOSE from a buyer with a MANUAL_PROPOSE (car type, offer)
      */
-    private class ProposalHandler extends CyclicBehaviour {
-        @Override
-        public void action() {
-            ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.PROPOSE));
-            if (msg != null) {
-                try {
-                    String content = msg.getContent();
+    private void handleProposal(ACLMessage msg) {
+        try {
+            MessageCodec.Reader proposal = MessageCodec.reader();
+            
+            // Handle manual proposal format
+            if (proposal.read(msg, MessageCodec.MANUAL_PROPOSE)) {
+                int offer = proposal.integer(1);
+                
+                if (proposal.fieldEqualsIgnoreCase(0, carType)) {
+                    String receivedCarType = proposal.string(0);
+                    String buyer = msg.getSender().getLocalName();
                     
-                    // Handle manual proposal format
-                    if (content.startsWith("MANUAL_PROPOSE:")) {
-                        content = content.substring("MANUAL_PROPOSE:".length());
-                        
-                        String[] parts = content.split(",");
-                        if (parts.length == 2) {
-                            String receivedCarType = parts[0];
-                            int offer = Integer.parseInt(parts[1]);
-                            
-                            if (receivedCarType.equalsIgnoreCase(carType)) {
-                                String buyer = msg.getSender().getLocalName();
-                                
-                                SwingUtilities.invokeLater(() -> {
-                                    requestModel.addRow(new Object[]{
-                                        buyer,
-                                        receivedCarType,
-                                        offer,
-                                        "Pending", // Initial status
-                                        ""
-                                    });
-                                });
-                                
-                                GUI.logMessage(getLocalName(), "Received request from " + buyer);
-                                return;
-                            }
-                        }
-                    }
-                    GUI.logMessage(getLocalName(), "⚠️ Invalid manual proposal format");
-                } catch (Exception e) {
-                    GUI.logMessage(getLocalName(), "⚠️ Invalid proposal format: " + msg.getContent());
+                    SwingUtilities.invokeLater(() -> {
+                        requestModel.addRow(new Object[]{
+                            buyer,
+                            receivedCarType,
+                            offer,
+                            "Pending", // Initial status
+                            ""
+                        });
+                    });
+                    
+                    GUI.logMessage(getLocalName(), "Received request from " + buyer);
+                    return;
                 }
             }
-            block();
+            GUI.logMessage(getLocalName(), "⚠️ Invalid manual proposal format");
+        } catch (Exception e) {
+            GUI.logMessage(getLocalName(), "⚠️ Invalid proposal format: " + MessageCodec.describe(msg));
         }
     }
 
@@ -389,8 +367,9 @@ public class ManualDealerAgent extends Agent implements IManualDealerAgent {
         public void action() {
             try {
                 ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-                msg.addReceiver(new AID("BrokerAgent", AID.ISLOCALNAME));
-                msg.setContent(carType.toLowerCase() + "," + listPrice);
+                msg.addReceiver(BrokerRouter.brokerFor(carType));
+                MessageKind.tag(msg, MessageKind.LISTING);
+                msg.setByteSequenceContent(MessageCodec.listing(carType.toLowerCase(), listPrice));
                 send(msg);
                 GUI.logInteraction(getLocalName(), "BrokerAgent", "INFORM",
                         carType + "," + listPrice);
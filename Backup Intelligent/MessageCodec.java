@@ -0,0 +1,494 @@
+package IntelligentProject;
+
+import jade.lang.acl.ACLMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary codec for the comma-separated protocol messages
+ * - Encoded as byte-sequence content: magic byte, type byte, then the fields
+ *   of the type's schema (strings: 2-byte length + UTF-8, ints: 4 bytes big-endian)
+ * - Repeated types (INVENTORY) carry a 2-byte entry count, then the entry fields
+ *   once per entry; field i of entry e is at position e * width + i
+ * - Reader is a reusable flyweight: it records field offsets and parses ints in
+ *   place, so reading a message allocates nothing until a string is requested
+ * - Reader also accepts the legacy text form ("DEAL_CONFIRMED,buyer,...") without
+ *   regex splitting, so old and new senders can be mixed
+ */
+public final class MessageCodec {
+    public static final byte LISTING = 1;				// carType, price
+    public static final byte OFFER = 2;					// carType, price (buyer/dealer PROPOSE)
+    public static final byte BEST_OFFER = 3;			// dealer, price (broker match reply)
+    public static final byte DEAL_CONFIRMED = 4;		// buyer, dealer, carType, price
+    public static final byte DEAL_REJECTED = 5;			// buyer, dealer, carType
+    public static final byte NEGOTIATION_FAILED = 6;	// buyer, dealer, carType
+    public static final byte DEAL_COMPLETED = 7;		// counterpart, carType, price
+    public static final byte MANUAL_PROPOSE = 8;		// carType, offer
+    public static final byte INVENTORY = 9;				// repeated (carType, price, stock)
+    public static final byte PRICE_CHANGE = 10;			// sequence, carType, price
+    public static final byte WITHDRAW = 11;				// sequence, carType
+    public static final byte RESTOCK = 12;				// sequence, carType, units
+    public static final byte LISTING_EVENTS = 13;		// repeated (event, dealer, price) for subscribers
+    public static final byte DEALER_MATCHES = 14;		// repeated (dealer, price) (broker top-K match reply)
+
+    // LISTING_EVENTS event codes
+    public static final int EVENT_ADD = 1;				// Listing now matches the subscription
+    public static final int EVENT_REMOVE = 2;			// Listing gone or priced above the limit
+    public static final int EVENT_PRICE = 3;			// Matching listing changed price
+
+    private static final byte MAGIC = (byte) 0xB7;
+    private static final int INITIAL_FIELDS = 4;
+
+    // Per type: field kinds ('S' string, 'I' int; leading '*' = repeated entry) and legacy text prefix
+    private static final String[] SCHEMA = {
+        null, "SI", "SI", "SI", "SSSI", "SSS", "SSS", "SSI", "SI", "*SII", "ISI", "IS", "ISI", "*ISI", "*SI"
+    };
+    private static final String[] TEXT_PREFIX = {
+        null, "", "", "", "DEAL_CONFIRMED,", "DEAL_REJECTED,", "NEGOTIATION_FAILED,",
+        "DEAL_COMPLETED,", "MANUAL_PROPOSE:", "INVENTORY,", "PRICE_CHANGE,", "WITHDRAW,", "RESTOCK,",
+        "LISTING_EVENTS,", "DEALER_MATCHES,"
+    };
+
+    private static final ThreadLocal<Reader> READERS = new ThreadLocal<Reader>() {
+        @Override
+        protected Reader initialValue() {
+            return new Reader();
+        }
+    };
+
+    private MessageCodec() {
+    }
+
+    public static byte[] listing(String carType, int price) {
+        return new Writer(LISTING).string(carType.trim()).integer(price).toBytes();
+    }
+
+    public static byte[] offer(String carType, int price) {
+        return new Writer(OFFER).string(carType).integer(price).toBytes();
+    }
+
+    public static byte[] bestOffer(String dealer, int price) {
+        return new Writer(BEST_OFFER).string(dealer).integer(price).toBytes();
+    }
+
+    public static byte[] dealConfirmed(String buyer, String dealer, String carType, int price) {
+        return new Writer(DEAL_CONFIRMED).string(buyer).string(dealer).string(carType).integer(price).toBytes();
+    }
+
+    public static byte[] dealRejected(String buyer, String dealer, String carType) {
+        return new Writer(DEAL_REJECTED).string(buyer).string(dealer).string(carType).toBytes();
+    }
+
+    public static byte[] negotiationFailed(String buyer, String dealer, String carType) {
+        return new Writer(NEGOTIATION_FAILED).string(buyer).string(dealer).string(carType).toBytes();
+    }
+
+    public static byte[] dealCompleted(String counterpart, String carType, int price) {
+        return new Writer(DEAL_COMPLETED).string(counterpart).string(carType).integer(price).toBytes();
+    }
+
+    public static byte[] manualPropose(String carType, int offer) {
+        return new Writer(MANUAL_PROPOSE).string(carType).integer(offer).toBytes();
+    }
+
+    /**
+     * @param carTypes Car type per entry
+     * @param prices Listed price per entry
+     * @param stocks Units on hand per entry
+     * @return Bulk registration holding every entry
+     */
+    public static byte[] inventory(String[] carTypes, int[] prices, int[] stocks) {
+        Writer writer = new Writer(INVENTORY).count(carTypes.length);
+        for (int i = 0; i < carTypes.length; i++) {
+            writer.string(carTypes[i].trim()).integer(prices[i]).integer(stocks[i]);
+        }
+        return writer.toBytes();
+    }
+
+    public static byte[] priceChange(int sequence, String carType, int price) {
+        return new Writer(PRICE_CHANGE).integer(sequence).string(carType.trim()).integer(price).toBytes();
+    }
+
+    public static byte[] withdraw(int sequence, String carType) {
+        return new Writer(WITHDRAW).integer(sequence).string(carType.trim()).toBytes();
+    }
+
+    public static byte[] restock(int sequence, String carType, int units) {
+        return new Writer(RESTOCK).integer(sequence).string(carType.trim()).integer(units).toBytes();
+    }
+
+    public static byte[] listingEvent(int event, String dealer, int price) {
+        return new Writer(LISTING_EVENTS).count(1).integer(event).string(dealer).integer(price).toBytes();
+    }
+
+    /**
+     * @param events Event code per entry (EVENT_ADD, EVENT_REMOVE, EVENT_PRICE)
+     * @param dealers Dealer per entry
+     * @param prices Price per entry
+     * @return One message carrying every event, in order
+     */
+    public static byte[] listingEvents(int[] events, String[] dealers, int[] prices) {
+        Writer writer = new Writer(LISTING_EVENTS).count(dealers.length);
+        for (int i = 0; i < dealers.length; i++) {
+            writer.integer(events[i]).string(dealers[i]).integer(prices[i]);
+        }
+        return writer.toBytes();
+    }
+
+    /**
+     * @param dealers Dealer per entry, cheapest first
+     * @param prices Listed price per entry
+     * @return Match reply naming several dealers
+     */
+    public static byte[] dealerMatches(String[] dealers, int[] prices) {
+        Writer writer = new Writer(DEALER_MATCHES).count(dealers.length);
+        for (int i = 0; i < dealers.length; i++) {
+            writer.string(dealers[i]).integer(prices[i]);
+        }
+        return writer.toBytes();
+    }
+
+    /**
+     * @return Reader owned by the calling thread (reused across calls)
+     */
+    public static Reader reader() {
+        return READERS.get();
+    }
+
+    /**
+     * @param msg Any message
+     * @return True if the content is in the binary form
+     */
+    public static boolean isBinary(ACLMessage msg) {
+        if (!msg.hasByteSequenceContent()) {
+            return false;
+        }
+        byte[] bytes = msg.getByteSequenceContent();
+        return bytes != null && bytes.length >= 2 && bytes[0] == MAGIC;
+    }
+
+    /**
+     * @param msg Any message
+     * @return Type of a binary message, or 0 for text content
+     */
+    public static byte typeOf(ACLMessage msg) {
+        return isBinary(msg) ? msg.getByteSequenceContent()[1] : 0;
+    }
+
+    /**
+     * Renders a message's content for logs and the sequence diagram
+     * @param msg Any message
+     * @return Legacy text form for binary messages, otherwise the content as is
+     */
+    public static String describe(ACLMessage msg) {
+        if (!isBinary(msg)) {
+            return msg.getContent();
+        }
+        Reader reader = new Reader();
+        if (!reader.read(msg, typeOf(msg))) {
+            return "<malformed binary content>";
+        }
+        StringBuilder sb = new StringBuilder(TEXT_PREFIX[reader.type()]);
+        for (int i = 0; i < reader.fieldCount(); i++) {
+            if (i > 0) sb.append(',');
+            if (kindOf(reader.type(), i) == 'I') {
+                sb.append(reader.integer(i));
+            } else {
+                sb.append(reader.string(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean knownType(int type) {
+        return type > 0 && type < SCHEMA.length;
+    }
+
+    private static boolean repeated(int type) {
+        return SCHEMA[type].charAt(0) == '*';
+    }
+
+    // Fields per entry (all fields for fixed types)
+    private static int width(int type) {
+        return repeated(type) ? SCHEMA[type].length() - 1 : SCHEMA[type].length();
+    }
+
+    // Kind ('S' or 'I') of a field position
+    private static char kindOf(int type, int field) {
+        return repeated(type)
+            ? SCHEMA[type].charAt(1 + field % width(type))
+            : SCHEMA[type].charAt(field);
+    }
+
+    /**
+     * Builds the binary form of one message
+     */
+    public static final class Writer {
+        private byte[] buf = new byte[32];
+        private int pos = 0;
+        private final byte type;
+
+        public Writer(byte type) {
+            if (!knownType(type)) {
+                throw new IllegalArgumentException("Unknown message type: " + type);
+            }
+            this.type = type;
+            buf[pos++] = MAGIC;
+            buf[pos++] = type;
+        }
+
+        /**
+         * Writes the entry count of a repeated type (must come first)
+         * @param entries Entries that follow
+         */
+        public Writer count(int entries) {
+            if (!repeated(type) || pos != 2) {
+                throw new IllegalStateException("Entry count only starts a repeated message");
+            }
+            if (entries < 0 || entries > 0xFFFF) {
+                throw new IllegalArgumentException("Entry count out of range: " + entries);
+            }
+            ensure(2);
+            buf[pos++] = (byte) (entries >>> 8);
+            buf[pos++] = (byte) entries;
+            return this;
+        }
+
+        public Writer string(String value) {
+            int len = value.length();
+            ensure(2 + len * 3);
+            int lenPos = pos;
+            pos += 2;
+            int i = 0;
+            while (i < len && value.charAt(i) < 0x80) {		// ASCII fast path
+                buf[pos++] = (byte) value.charAt(i++);
+            }
+            if (i < len) {
+                pos = lenPos + 2;
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(utf8, 0, buf, pos, utf8.length);
+                pos += utf8.length;
+            }
+            int encoded = pos - lenPos - 2;
+            if (encoded > 0xFFFF) {
+                throw new IllegalArgumentException("Field too long: " + encoded + " bytes");
+            }
+            buf[lenPos] = (byte) (encoded >>> 8);
+            buf[lenPos + 1] = (byte) encoded;
+            return this;
+        }
+
+        public Writer integer(int value) {
+            ensure(4);
+            buf[pos++] = (byte) (value >>> 24);
+            buf[pos++] = (byte) (value >>> 16);
+            buf[pos++] = (byte) (value >>> 8);
+            buf[pos++] = (byte) value;
+            return this;
+        }
+
+        public byte[] toBytes() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    /**
+     * Flyweight view over one message's fields
+     * - Not thread-safe; use one per thread (see reader())
+     * - Valid until the next read()
+     */
+    public static final class Reader {
+        private byte[] bytes;		// Binary content, or null when reading text
+        private String text;		// Legacy text content, or null when reading binary
+        private byte type;
+        private int fields;
+        private int[] start = new int[INITIAL_FIELDS];		// Grown for repeated types
+        private int[] end = new int[INITIAL_FIELDS];
+        private int[] ints = new int[INITIAL_FIELDS];
+
+        /**
+         * Parses a message as the expected type
+         * @param msg Message with binary or legacy text content
+         * @param expected One of the type constants
+         * @return False if the content does not match the type's schema
+         */
+        public boolean read(ACLMessage msg, byte expected) {
+            bytes = null;
+            text = null;
+            fields = 0;
+            if (!knownType(expected)) {
+                return false;
+            }
+            type = expected;
+            if (isBinary(msg)) {
+                return readBinary(msg.getByteSequenceContent());
+            }
+            String content = msg.getContent();
+            return content != null && readText(content);
+        }
+
+        public byte type() {
+            return type;
+        }
+
+        public int fieldCount() {
+            return fields;
+        }
+
+        /**
+         * @return Entries read (1 for fixed types)
+         */
+        public int entries() {
+            return fields / width(type);
+        }
+
+        /**
+         * @param field Field position
+         * @return Int field value (already parsed by read())
+         */
+        public int integer(int field) {
+            return ints[field];
+        }
+
+        /**
+         * @param field Field position
+         * @return String field value (allocates)
+         */
+        public String string(int field) {
+            if (bytes != null) {
+                return new String(bytes, start[field], end[field] - start[field], StandardCharsets.UTF_8);
+            }
+            return text.substring(start[field], end[field]);
+        }
+
+        /**
+         * Compares a string field without allocating
+         * @param field Field position
+         * @param value Expected value (ASCII, case-insensitive)
+         * @return True if equal
+         */
+        public boolean fieldEqualsIgnoreCase(int field, String value) {
+            int len = end[field] - start[field];
+            if (len != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                char c = bytes != null ? (char) (bytes[start[field] + i] & 0xFF) : text.charAt(start[field] + i);
+                if (Character.toLowerCase(c) != Character.toLowerCase(value.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean readBinary(byte[] data) {
+            if (data[1] != type) {
+                return false;
+            }
+            bytes = data;
+            int pos = 2;
+            int count = 1;
+            if (repeated(type)) {
+                if (pos + 2 > data.length) return false;
+                count = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+                pos += 2;
+            }
+            int total = count * width(type);
+            if (2 * total > data.length - pos) return false;	// Every field takes at least 2 bytes
+            ensureFields(total);
+            for (int f = 0; f < total; f++) {
+                if (kindOf(type, f) == 'S') {
+                    if (pos + 2 > data.length) return false;
+                    int len = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+                    pos += 2;
+                    if (pos + len > data.length) return false;
+                    start[f] = pos;
+                    end[f] = pos + len;
+                    pos += len;
+                } else {
+                    if (pos + 4 > data.length) return false;
+                    ints[f] = ((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16)
+                        | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+                    pos += 4;
+                }
+            }
+            fields = total;
+            return pos == data.length;
+        }
+
+        private boolean readText(String content) {
+            String prefix = TEXT_PREFIX[type];
+            if (!content.startsWith(prefix)) {
+                return false;
+            }
+            text = content;
+            int expected = repeated(type) ? -1 : width(type);	// -1 = any whole number of entries
+            int pos = prefix.length();
+            if (expected < 0 && pos == content.length()) {
+                return true;	// Empty inventory
+            }
+            int f = 0;
+            while (true) {
+                if (f == expected) {
+                    return false;	// Too many fields
+                }
+                int comma = content.indexOf(',', pos);
+                int stop = comma < 0 ? content.length() : comma;
+                ensureFields(f + 1);
+                // Trim surrounding spaces
+                int s = pos;
+                int e = stop;
+                while (s < e && content.charAt(s) == ' ') s++;
+                while (e > s && content.charAt(e - 1) == ' ') e--;
+                start[f] = s;
+                end[f] = e;
+                if (kindOf(type, f) == 'I' && !parseInt(content, s, e, f)) {
+                    return false;
+                }
+                f++;
+                if (comma < 0) {
+                    break;
+                }
+                pos = comma + 1;
+            }
+            if (expected >= 0 ? f != expected : f % width(type) != 0) {
+                return false;	// Too few fields, or a partial entry
+            }
+            fields = f;
+            return true;
+        }
+
+        private void ensureFields(int count) {
+            if (count > start.length) {
+                int capacity = Math.max(count, start.length * 2);
+                start = Arrays.copyOf(start, capacity);
+                end = Arrays.copyOf(end, capacity);
+                ints = Arrays.copyOf(ints, capacity);
+            }
+        }
+
+        private boolean parseInt(String s, int from, int to, int field) {
+            if (from >= to) return false;
+            boolean negative = s.charAt(from) == '-';
+            int i = negative ? from + 1 : from;
+            if (i >= to) return false;
+            long value = 0;
+            for (; i < to; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return false;
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE + 1L) return false;
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) return false;
+            ints[field] = (int) value;
+            return true;
+        }
+    }
+}
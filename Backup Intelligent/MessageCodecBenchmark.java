@@ -0,0 +1,103 @@
+package IntelligentProject;
+
+import jade.lang.acl.ACLMessage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Microbenchmark for message content parsing
+ * Compares String.split on the comma format with MessageCodec reading the same
+ * message as legacy text and as binary content
+ *
+ * Usage: java IntelligentProject.MessageCodecBenchmark [iterations]
+ * Reports time and heap allocation per parsed message (allocation needs a HotSpot JVM)
+ */
+public class MessageCodecBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static volatile long sink;	// Keeps results alive so the JIT cannot drop the work
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        ACLMessage listingText = new ACLMessage(ACLMessage.INFORM);
+        listingText.setContent("Toyota,25000");
+        ACLMessage listingBinary = new ACLMessage(ACLMessage.INFORM);
+        listingBinary.setByteSequenceContent(MessageCodec.listing("Toyota", 25000));
+
+        ACLMessage dealText = new ACLMessage(ACLMessage.INFORM);
+        dealText.setContent("DEAL_CONFIRMED,A.Buyer12,A.Dealer7,Toyota,24150");
+        ACLMessage dealBinary = new ACLMessage(ACLMessage.INFORM);
+        dealBinary.setByteSequenceContent(MessageCodec.dealConfirmed("A.Buyer12", "A.Dealer7", "Toyota", 24150));
+
+        System.out.println("Content size: listing text " + listingText.getContent().length()
+            + " B, binary " + listingBinary.getByteSequenceContent().length
+            + " B; deal text " + dealText.getContent().length()
+            + " B, binary " + dealBinary.getByteSequenceContent().length + " B");
+
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            boolean report = round == WARMUP_ROUNDS;
+            run("listing  split        ", report, iterations, () -> splitListing(listingText));
+            run("listing  codec (text) ", report, iterations, () -> codecListing(listingText));
+            run("listing  codec (bin)  ", report, iterations, () -> codecListing(listingBinary));
+            run("deal     split        ", report, iterations, () -> splitDeal(dealText));
+            run("deal     codec (text) ", report, iterations, () -> codecDeal(dealText));
+            run("deal     codec (bin)  ", report, iterations, () -> codecDeal(dealBinary));
+        }
+    }
+
+    // Parse step under test; returns a value derived from every field it needs
+    private interface Parse {
+        long parse();
+    }
+
+    private static void run(String label, boolean report, int iterations, Parse parse) {
+        long allocBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long acc = 0;
+        for (int i = 0; i < iterations; i++) {
+            acc += parse.parse();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocBefore;
+        sink = acc;
+        if (report) {
+            System.out.println(String.format("%s %7.1f ns/msg %8s", label,
+                (double) nanos / iterations,
+                allocated < 0 ? "n/a" : String.format("%.1f B/msg", (double) allocated / iterations)));
+        }
+    }
+
+    // Original broker code path: "CarType,Price"
+    private static long splitListing(ACLMessage msg) {
+        String[] parts = msg.getContent().split(",");
+        return parts[0].length() + Integer.parseInt(parts[1].trim());
+    }
+
+    // Dealer name compared in place, as a hot path would; price read as int
+    private static long codecListing(ACLMessage msg) {
+        MessageCodec.Reader reader = MessageCodec.reader();
+        if (!reader.read(msg, MessageCodec.LISTING)) throw new IllegalStateException();
+        return (reader.fieldEqualsIgnoreCase(0, "toyota") ? 1 : 0) + reader.integer(1);
+    }
+
+    // Original broker code path: "DEAL_CONFIRMED,buyer,dealer,car,price"
+    private static long splitDeal(ACLMessage msg) {
+        String[] parts = msg.getContent().split(",");
+        if (parts.length != 5 || !parts[0].equals("DEAL_CONFIRMED")) throw new IllegalStateException();
+        return parts[1].length() + parts[2].length() + parts[3].length() + Integer.parseInt(parts[4]);
+    }
+
+    private static long codecDeal(ACLMessage msg) {
+        MessageCodec.Reader reader = MessageCodec.reader();
+        if (!reader.read(msg, MessageCodec.DEAL_CONFIRMED)) throw new IllegalStateException();
+        return reader.fieldCount() + reader.integer(3);
+    }
+
+    // Bytes allocated by this thread so far, or -1 if the JVM cannot tell
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
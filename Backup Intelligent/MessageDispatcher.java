@@ -0,0 +1,124 @@
+package IntelligentProject;
+
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single message-handling behaviour for an agent
+ * - Takes every message from the mailbox once (no templates) and routes it by a
+ *   key from the agent's classifier through a MessageHandlerRegistry
+ * - Also drains O2A objects: Object[] commands are routed by their first element,
+ *   ACLMessages are handed to the outgoing handler
+ * - Replaces one cyclic behaviour per message type, so each arrival wakes one
+ *   behaviour instead of all of them
+ * - Messages and commands without a handler are dropped (counted in stats())
+ */
+public class MessageDispatcher extends CyclicBehaviour {
+
+    /**
+     * Maps a message to its handler key
+     */
+    public interface Classifier {
+        String keyOf(ACLMessage msg);
+    }
+
+    /**
+     * Callback for one O2A command
+     */
+    public interface Command {
+        void run(Object[] args);
+    }
+
+    private final Classifier classifier;
+    private final MessageHandlerRegistry handlers = new MessageHandlerRegistry();
+    private final Map<String, Command> commands = new HashMap<>();
+    private MessageHandlerRegistry.Handler outgoing;
+    private long ignoredObjects = 0;
+
+    /**
+     * @param agent Owning agent
+     * @param classifier Message key function
+     */
+    public MessageDispatcher(Agent agent, Classifier classifier) {
+        super(agent);
+        this.classifier = classifier;
+    }
+
+    /**
+     * Registers the handler for a message key
+     * @return This dispatcher (for chaining)
+     */
+    public MessageDispatcher on(String key, MessageHandlerRegistry.Handler handler) {
+        handlers.register(key, handler);
+        return this;
+    }
+
+    /**
+     * Registers an O2A command (Object[] whose first element is the name)
+     * @return This dispatcher (for chaining)
+     */
+    public MessageDispatcher onCommand(String name, Command command) {
+        commands.put(name, command);
+        return this;
+    }
+
+    /**
+     * Registers the handler for ACLMessages passed in through O2A
+     * @return This dispatcher (for chaining)
+     */
+    public MessageDispatcher onOutgoing(MessageHandlerRegistry.Handler handler) {
+        outgoing = handler;
+        return this;
+    }
+
+    @Override
+    public void action() {
+        boolean worked = false;
+        ACLMessage msg;
+        while ((msg = myAgent.receive()) != null) {
+            worked = true;
+            try {
+                handlers.dispatch(classifier.keyOf(msg), msg);
+            } catch (Exception e) {
+                GUI.logMessage(myAgent.getLocalName(), "⚠️ Message handling error: " + e.getMessage());
+            }
+        }
+        Object obj;
+        while ((obj = myAgent.getO2AObject()) != null) {
+            worked = true;
+            try {
+                runObject(obj);
+            } catch (Exception e) {
+                GUI.logMessage(myAgent.getLocalName(), "⚠️ Command error: " + e.getMessage());
+            }
+        }
+        if (!worked) {
+            block();
+        }
+    }
+
+    /**
+     * @return Per-key handler statistics, for logging
+     */
+    public String stats() {
+        String stats = handlers.stats();
+        return ignoredObjects == 0 ? stats : stats + "\nignored O2A objects: " + ignoredObjects;
+    }
+
+    private void runObject(Object obj) {
+        if (obj instanceof Object[] && ((Object[]) obj).length > 0) {
+            Command command = commands.get(String.valueOf(((Object[]) obj)[0]));
+            if (command != null) {
+                command.run((Object[]) obj);
+                return;
+            }
+        } else if (obj instanceof ACLMessage && outgoing != null) {
+            outgoing.handle((ACLMessage) obj);
+            return;
+        }
+        ignoredObjects++;
+    }
+}
@@ -0,0 +1,136 @@
+package IntelligentProject;
+
+import jade.lang.acl.ACLMessage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Handler table keyed by message kind (see MessageKind)
+ * - O(1) dispatch through a hash lookup instead of template/prefix chains
+ * - Tracks invocation count and latency per kind, and messages of each
+ *   kind that arrived with no handler
+ * - Registration happens before use; dispatch and counters are safe across threads
+ */
+public class MessageHandlerRegistry {
+
+    /**
+     * Callback for one message kind
+     */
+    public interface Handler {
+        void handle(ACLMessage msg);
+    }
+
+    // Handler plus its counters
+    private static final class Entry {
+        final Handler handler;
+        long invocations = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+
+        Entry(Handler handler) {
+            this.handler = handler;
+        }
+    }
+
+    private final Map<String, Entry> handlers = new LinkedHashMap<>();
+    private final Map<String, Long> unhandled = new LinkedHashMap<>();	// Kind -> messages without a handler
+
+    /**
+     * Registers the handler for a kind, replacing any previous one
+     * @param kind Message kind
+     * @param handler Callback
+     * @return This registry (for chaining)
+     */
+    public MessageHandlerRegistry register(String kind, Handler handler) {
+        handlers.put(kind, new Entry(handler));
+        return this;
+    }
+
+    /**
+     * @param kind Message kind
+     * @return True if a handler is registered for the kind
+     */
+    public boolean handles(String kind) {
+        return handlers.containsKey(kind);
+    }
+
+    /**
+     * Runs the handler registered for a kind and records its latency
+     * @param kind Message kind
+     * @param msg Message to handle
+     * @return False if no handler is registered
+     */
+    public boolean dispatch(String kind, ACLMessage msg) {
+        Entry entry = handlers.get(kind);
+        if (entry == null) {
+            synchronized (this) {
+                unhandled.merge(kind, 1L, Long::sum);
+            }
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            entry.handler.handle(msg);
+        } finally {
+            record(entry, 1, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /**
+     * Records work done for a kind outside dispatch() (e.g. a batch of messages)
+     * @param kind Message kind
+     * @param messages Messages processed
+     * @param nanos Time spent on them
+     */
+    public void record(String kind, int messages, long nanos) {
+        Entry entry = handlers.get(kind);
+        if (entry != null && messages > 0) {
+            record(entry, messages, nanos);
+        }
+    }
+
+    public long invocations(String kind) {
+        Entry entry = handlers.get(kind);
+        if (entry == null) return 0;
+        synchronized (entry) {
+            return entry.invocations;
+        }
+    }
+
+    /**
+     * @param kind Message kind
+     * @return Messages of that kind dispatched with no handler registered
+     */
+    public synchronized long unhandled(String kind) {
+        return unhandled.getOrDefault(kind, 0L);
+    }
+
+    /**
+     * @return One summary line per kind, for logging
+     */
+    public synchronized String stats() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Entry> e : handlers.entrySet()) {
+            Entry entry = e.getValue();
+            synchronized (entry) {
+                if (entry.invocations == 0) continue;
+                sb.append(String.format("%s: %d msgs, avg %.1fµs, max %.1fµs%n",
+                    e.getKey(), entry.invocations,
+                    entry.totalNanos / 1000.0 / entry.invocations, entry.maxNanos / 1000.0));
+            }
+        }
+        for (Map.Entry<String, Long> e : unhandled.entrySet()) {
+            sb.append(String.format("%s: %d msgs unhandled%n", e.getKey(), e.getValue()));
+        }
+        return sb.toString().trim();
+    }
+
+    private static void record(Entry entry, int messages, long nanos) {
+        synchronized (entry) {
+            entry.invocations += messages;
+            entry.totalNanos += nanos;
+            entry.maxNanos = Math.max(entry.maxNanos, nanos / messages);
+        }
+    }
+}
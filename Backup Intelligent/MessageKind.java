@@ -0,0 +1,85 @@
+package IntelligentProject;
+
+import jade.lang.acl.ACLMessage;
+
+/**
+ * Message kinds exchanged with the BrokerAgent
+ * - Senders put the kind in the ACL ontology slot
+ * - Receivers dispatch on it through a MessageHandlerRegistry
+ * - Messages without an ontology (older senders) are classified from
+ *   their MessageCodec type, or their performative and content prefix
+ */
+public final class MessageKind {
+    public static final String LISTING = "car-listing";					// Dealer registration (LISTING or INVENTORY)
+    public static final String LISTING_DELTA = "listing-delta";			// PRICE_CHANGE, WITHDRAW or RESTOCK
+    public static final String BUYER_REQUEST = "buyer-request";			// Cheapest dealer lookup
+    public static final String DEALER_QUERY = "dealer-query";				// Manual buyer range query
+    public static final String DEAL_CONFIRMED = "deal-confirmed";
+    public static final String DEAL_REJECTED = "deal-rejected";
+    public static final String NEGOTIATION_FAILED = "negotiation-failed";
+    public static final String COMMISSION_REPORT = "commission-report";	// Shard -> primary broker totals
+    public static final String SUBSCRIPTION = "listing-subscription";	// SUBSCRIBE/CANCEL "CarType,MaxPrice" feed
+    public static final String LISTING_EVENTS = "listing-events";		// Broker -> subscriber feed updates
+    public static final String AUCTION = "contract-net";				// Broker CFP, dealer bids and the award
+    public static final String UNKNOWN = "unknown";
+
+    private MessageKind() {
+    }
+
+    /**
+     * Stamps a message with its kind
+     * @param msg Outgoing message
+     * @param kind One of the kind constants
+     * @return The same message
+     */
+    public static ACLMessage tag(ACLMessage msg, String kind) {
+        msg.setOntology(kind);
+        return msg;
+    }
+
+    /**
+     * Determines the kind of an incoming message
+     * @param msg Incoming message
+     * @return Kind from the ontology slot, or derived for untagged messages
+     */
+    public static String of(ACLMessage msg) {
+        String ontology = msg.getOntology();
+        if (ontology != null) {
+            return ontology;
+        }
+        switch (MessageCodec.typeOf(msg)) {
+            case MessageCodec.LISTING: return LISTING;
+            case MessageCodec.INVENTORY: return LISTING;
+            case MessageCodec.PRICE_CHANGE:
+            case MessageCodec.WITHDRAW:
+            case MessageCodec.RESTOCK: return LISTING_DELTA;
+            case MessageCodec.LISTING_EVENTS: return LISTING_EVENTS;
+            case MessageCodec.DEAL_CONFIRMED: return DEAL_CONFIRMED;
+            case MessageCodec.DEAL_REJECTED: return DEAL_REJECTED;
+            case MessageCodec.NEGOTIATION_FAILED: return NEGOTIATION_FAILED;
+            default: break;
+        }
+        String content = msg.getContent();
+        switch (msg.getPerformative()) {
+            case ACLMessage.INFORM:
+                if (content == null) return UNKNOWN;
+                if (content.startsWith("DEAL_CONFIRMED")) return DEAL_CONFIRMED;
+                if (content.startsWith("DEAL_REJECTED")) return DEAL_REJECTED;
+                if (content.startsWith("PRICE_CHANGE") || content.startsWith("WITHDRAW")
+                        || content.startsWith("RESTOCK")) return LISTING_DELTA;
+                return LISTING;
+            case ACLMessage.REQUEST:
+                return BUYER_REQUEST;
+            case ACLMessage.QUERY_IF:
+                return DEALER_QUERY;
+            case ACLMessage.SUBSCRIBE:
+            case ACLMessage.CANCEL:
+                return SUBSCRIPTION;
+            case ACLMessage.FAILURE:
+                return content != null && content.startsWith("NEGOTIATION_FAILED")
+                    ? NEGOTIATION_FAILED : UNKNOWN;
+            default:
+                return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package IntelligentProject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Open negotiations of a DealerAgent, one session per buyer
+ * - A session holds what the dealer's strategy needs between rounds
+ *   (rounds, last offer, last ask) plus its start and last activity times
+ * - Sessions end on a deal, a failure or a cancellation, and expire after
+ *   ttlMs without an offer (buyers that walk away never say so)
+ * - At most maxSessions are open; open() returns null when the table is full
+ *   so the dealer can answer BUSY instead of growing without bound
+ * - Kept in last-activity order, so expiry only visits expired sessions
+ * - Agent thread only (not thread-safe)
+ */
+public class NegotiationSessions {
+
+    /**
+     * One buyer's negotiation
+     */
+    public static final class Session {
+        public final String buyer;
+        public final long startedAt;	// Time of the first offer
+        long lastActive;				// Time of the latest offer
+        int rounds;						// Offers received
+        int lastOffer;					// Buyer's previous offer (0 before the first)
+        int lastAsk;					// Dealer's previous ask
+
+        Session(String buyer, long now) {
+            this.buyer = buyer;
+            this.startedAt = now;
+            this.lastActive = now;
+        }
+    }
+
+    private final Map<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);	// Buyer -> session
+    private final int maxSessions;
+    private final long ttlMs;
+    private long opened = 0;
+    private long expired = 0;
+    private long refused = 0;
+
+    /**
+     * @param maxSessions Most sessions open at once
+     * @param ttlMs Idle time after which a session is dropped
+     */
+    public NegotiationSessions(int maxSessions, long ttlMs) {
+        this.maxSessions = maxSessions;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Returns the buyer's session, starting one if needed
+     * @param buyer Buyer agent name
+     * @param now Current time in milliseconds
+     * @return Session (marked active), or null if the table is full
+     */
+    public Session open(String buyer, long now) {
+        Session session = sessions.get(buyer);
+        if (session != null && now - session.lastActive <= ttlMs) {
+            session.lastActive = now;
+            return session;
+        }
+        if (session != null) {
+            sessions.remove(buyer);	// Stale: start over
+            expired++;
+        }
+        if (sessions.size() >= maxSessions) {
+            purgeExpired(now);
+            if (sessions.size() >= maxSessions) {
+                refused++;
+                return null;
+            }
+        }
+        session = new Session(buyer, now);
+        sessions.put(buyer, session);
+        opened++;
+        return session;
+    }
+
+    /**
+     * Ends a buyer's session (deal, failure or cancellation)
+     * @param buyer Buyer agent name
+     * @return Ended session, or null if none was open
+     */
+    public Session end(String buyer) {
+        return sessions.remove(buyer);
+    }
+
+    /**
+     * Drops sessions idle for longer than the TTL
+     * @param now Current time in milliseconds
+     * @return Number of sessions dropped
+     */
+    public int purgeExpired(long now) {
+        int dropped = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastActive <= ttlMs) {
+                break;	// Oldest activity first: the rest are younger
+            }
+            it.remove();
+            dropped++;
+        }
+        expired += dropped;
+        return dropped;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public long getTtl() {
+        return ttlMs;
+    }
+
+    /**
+     * @return Summary for logs
+     */
+    public String stats() {
+        return sessions.size() + "/" + maxSessions + " open, " + opened + " opened, " +
+            expired + " expired, " + refused + " refused busy";
+    }
+}
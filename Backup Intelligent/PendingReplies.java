@@ -0,0 +1,156 @@
+package IntelligentProject;
+
+import jade.core.Agent;
+import jade.core.behaviours.WakerBehaviour;
+import jade.lang.acl.ACLMessage;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request/reply without blocking the agent
+ * - send() stamps a request with a conversation-id and reply-with, sends it and
+ *   returns at once; the reply is handed to a continuation when it arrives
+ * - A WakerBehaviour per request enforces the timeout, so the agent keeps serving
+ *   other messages and O2A commands while the request is in flight
+ * - The agent's dispatcher passes replies to complete() (see isReply()); the first
+ *   reply wins
+ * - Later replies and replies after the timeout are recognised by isLate() (for
+ *   the last MAX_CLOSED requests) and should go to dropLate(), never to the
+ *   handlers for unsolicited traffic
+ * - Push-style counterpart of ConversationRouter (see there for why both exist)
+ * - Agent thread only: call from behaviours (GUI threads go through O2A)
+ */
+public class PendingReplies {
+
+    // One request in flight
+    private static final class Pending {
+        final MessageHandlerRegistry.Handler onReply;
+        final WakerBehaviour timer;
+
+        Pending(MessageHandlerRegistry.Handler onReply, WakerBehaviour timer) {
+            this.onReply = onReply;
+            this.timer = timer;
+        }
+    }
+
+    private static final int MAX_CLOSED = 256;	// Answered or timed-out requests remembered
+
+    private final Agent agent;
+    private final Map<String, Pending> pending = new HashMap<>();	// reply-with -> request
+    // reply-with values no longer in flight, oldest evicted first
+    private final Map<String, Boolean> closed = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CLOSED;
+        }
+    };
+    private long sequence = 0;
+    private long timeouts = 0;
+    private long late = 0;
+
+    /**
+     * @param agent Agent sending the requests and running the timers
+     */
+    public PendingReplies(Agent agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * Sends a request and returns without waiting
+     * @param request Outgoing request (receivers and content already set)
+     * @param purpose Short label included in the conversation-id (e.g. "query")
+     * @param timeoutMs Longest wait for the reply
+     * @param onReply Called with the reply on the agent thread
+     * @param onTimeout Called on the agent thread if no reply came in time
+     * @return The reply-with value set on the request
+     */
+    public String send(ACLMessage request, String purpose, long timeoutMs,
+                       MessageHandlerRegistry.Handler onReply, final Runnable onTimeout) {
+        String conversationId = agent.getLocalName() + "-" + purpose + "-" + (++sequence);
+        final String replyWith = conversationId + ".1";
+        request.setConversationId(conversationId);
+        request.setReplyWith(replyWith);
+
+        WakerBehaviour timer = new WakerBehaviour(agent, timeoutMs) {
+            @Override
+            protected void onWake() {
+                if (pending.remove(replyWith) != null) {
+                    closed.put(replyWith, Boolean.TRUE);
+                    timeouts++;
+                    onTimeout.run();
+                }
+            }
+        };
+        pending.put(replyWith, new Pending(onReply, timer));
+        agent.addBehaviour(timer);
+        agent.send(request);
+        return replyWith;
+    }
+
+    /**
+     * @param msg Incoming message
+     * @return True if it answers a request still in flight
+     */
+    public boolean isReply(ACLMessage msg) {
+        String inReplyTo = msg.getInReplyTo();
+        return inReplyTo != null && pending.containsKey(inReplyTo);
+    }
+
+    /**
+     * @param msg Incoming message
+     * @return True if it answers a request that was already answered or timed out
+     */
+    public boolean isLate(ACLMessage msg) {
+        String inReplyTo = msg.getInReplyTo();
+        return inReplyTo != null && closed.containsKey(inReplyTo);
+    }
+
+    /**
+     * Drops a late reply (see isLate()) and logs it
+     * @param msg Incoming message
+     */
+    public void dropLate(ACLMessage msg) {
+        late++;
+        GUI.logMessage(agent.getLocalName(), "⏱️ Late reply dropped (" + msg.getInReplyTo() + ")" +
+            (msg.getSender() == null ? "" : " from " + msg.getSender().getLocalName()));
+    }
+
+    /**
+     * Hands a reply to its continuation and stops the request's timer
+     * @param msg Incoming message
+     * @return False if it answers no request in flight
+     */
+    public boolean complete(ACLMessage msg) {
+        String inReplyTo = msg.getInReplyTo();
+        Pending request = inReplyTo == null ? null : pending.remove(inReplyTo);
+        if (request == null) {
+            return false;
+        }
+        closed.put(inReplyTo, Boolean.TRUE);
+        request.timer.stop();
+        request.onReply.handle(msg);
+        return true;
+    }
+
+    /**
+     * @return Requests still waiting for a reply
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return Requests that timed out so far
+     */
+    public long timeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return Late replies dropped so far
+     */
+    public long lateReplies() {
+        return late;
+    }
+}
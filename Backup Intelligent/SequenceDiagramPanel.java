@@ -223,7 +223,7 @@ public class SequenceDiagramPanel extends JPanel {
             return "Dealer";
         }
         // Handle broker agent
-        if (agentName.equals("BrokerAgent")) {
+        if (BrokerRouter.isBroker(agentName)) {
             return "Broker";
         }
         return agentName;
@@ -18,6 +18,7 @@ public class SnifferAgent extends Agent {
 				// Capture ALL messages in the system
                 ACLMessage msg = receive(MessageTemplate.MatchAll());
                 if (msg != null) {
+                    String content = MessageCodec.describe(msg);	// Binary contents shown as text
                     // Handle multiple receivers
                     Iterator it = msg.getAllReceiver();
                     while (it.hasNext()) {
@@ -26,8 +27,8 @@ public class SnifferAgent extends Agent {
                         GUI.logInteraction(
                             msg.getSender().getLocalName(),
                             receiver.getLocalName(),
-                            getPerformative(msg),	// Get readable performative
-                            msg.getContent()
+                            getPerformative(msg, content),	// Get readable performative
+                            content
                         );
                     }
                 }
@@ -40,16 +41,16 @@ public class SnifferAgent extends Agent {
      * Translates ACLMessage performatives to human-readable labels
      * Handles both standard and custom message formats
      * @param msg Message to analyze
+     * @param content Message content as text (see MessageCodec.describe)
      * @return String representation of message type
      */
-	private String getPerformative(ACLMessage msg) {
+	private String getPerformative(ACLMessage msg, String content) {
 		// Handle special QUERY_IF case first
 		if (msg.getPerformative() == ACLMessage.QUERY_IF) {
 	        return "QUERY_IF"; // Explicitly map QUERY_IF
 	    }
 	    
 	    int performative = msg.getPerformative();
-	    String content = msg.getContent();
 
 	    // Detect manual negotiation messages
 	    if (content != null) {
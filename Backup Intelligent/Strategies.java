@@ -0,0 +1,342 @@
+package IntelligentProject;
+
+/**
+ * Built-in negotiation strategies and their selection from agent arguments
+ * - "legacy": the original behaviour (dealer: 5% off per round, 70% floor;
+ *   buyer: 97% of an affordable counter before round 3, then accept,
+ *   otherwise split the difference)
+ * - "time-dependent": concedes along (round / deadline)^(1 / beta) towards its
+ *   limit (beta < 1 holds out until late, beta > 1 concedes early)
+ * - "tit-for-tat": concedes as much as the other side conceded last round
+ *   (after a small opening move) and stops when the other side stops
+ * - Agents take "strategy=NAME", "deadline=N" and "beta=X" arguments next to
+ *   their positional ones (see positional())
+ * - Schedules are int tables in parts per million, built once per strategy
+ */
+public final class Strategies {
+    public static final String LEGACY = "legacy";
+    public static final String TIME_DEPENDENT = "time-dependent";
+    public static final String TIT_FOR_TAT = "tit-for-tat";
+    public static final String[] NAMES = {LEGACY, TIME_DEPENDENT, TIT_FOR_TAT};
+
+    public static final int MAX_ROUNDS = 64;			// Schedule length (later rounds reuse the last entry)
+    private static final int PPM = 1_000_000;			// Table unit: parts per million
+    private static final int FLOOR_PPM = 700_000;		// Dealers never go below 70% of list
+    private static final int DEFAULT_DEADLINE = 8;		// Time-dependent rounds to reach the limit
+    private static final double DEFAULT_BETA = 1.0;		// Linear concession
+    private static final int LEGACY_MIN_ROUNDS = 3;		// Legacy buyer haggles at least this long
+
+    private Strategies() {
+    }
+
+    /**
+     * @param args Agent arguments (may be null)
+     * @return Dealer strategy named by the "strategy=" argument (legacy if absent)
+     */
+    public static DealerStrategy dealer(Object[] args) {
+        return dealer(option(args, "strategy", LEGACY),
+            Integer.parseInt(option(args, "deadline", Integer.toString(DEFAULT_DEADLINE))),
+            Double.parseDouble(option(args, "beta", Double.toString(DEFAULT_BETA))));
+    }
+
+    /**
+     * @param args Agent arguments (may be null)
+     * @return Buyer strategy named by the "strategy=" argument (legacy if absent)
+     */
+    public static BuyerStrategy buyer(Object[] args) {
+        return buyer(option(args, "strategy", LEGACY),
+            Integer.parseInt(option(args, "deadline", Integer.toString(DEFAULT_DEADLINE))),
+            Double.parseDouble(option(args, "beta", Double.toString(DEFAULT_BETA))));
+    }
+
+    /**
+     * @param name Strategy name (see NAMES)
+     * @param deadline Round by which a time-dependent strategy reaches its limit
+     * @param beta Time-dependent concession shape
+     * @return Dealer strategy
+     * @throws IllegalArgumentException If the name is unknown
+     */
+    public static DealerStrategy dealer(String name, int deadline, double beta) {
+        switch (name.trim().toLowerCase()) {
+            case LEGACY: return new LegacyDealer();
+            case TIME_DEPENDENT: return new TimeDependentDealer(deadline, beta);
+            case TIT_FOR_TAT: return new TitForTatDealer();
+            default: throw new IllegalArgumentException("Unknown dealer strategy: " + name);
+        }
+    }
+
+    /**
+     * @param name Strategy name (see NAMES)
+     * @param deadline Round by which a time-dependent strategy reaches its limit
+     * @param beta Time-dependent concession shape
+     * @return Buyer strategy
+     * @throws IllegalArgumentException If the name is unknown
+     */
+    public static BuyerStrategy buyer(String name, int deadline, double beta) {
+        switch (name.trim().toLowerCase()) {
+            case LEGACY: return new LegacyBuyer(LEGACY_MIN_ROUNDS);
+            case TIME_DEPENDENT: return new TimeDependentBuyer(deadline, beta);
+            case TIT_FOR_TAT: return new TitForTatBuyer();
+            default: throw new IllegalArgumentException("Unknown buyer strategy: " + name);
+        }
+    }
+
+    /**
+     * @param args Agent arguments (may be null)
+     * @return The arguments that are not "key=value" options, in order
+     */
+    public static Object[] positional(Object[] args) {
+        if (args == null) {
+            return new Object[0];
+        }
+        int count = 0;
+        for (Object arg : args) {
+            if (!isOption(arg)) count++;
+        }
+        Object[] positional = new Object[count];
+        int i = 0;
+        for (Object arg : args) {
+            if (!isOption(arg)) positional[i++] = arg;
+        }
+        return positional;
+    }
+
+    /**
+     * @param args Agent arguments (may be null)
+     * @param key Option name
+     * @param fallback Value if the option is absent
+     * @return Value of the last "key=value" argument for the key
+     */
+    public static String option(Object[] args, String key, String fallback) {
+        String value = fallback;
+        if (args == null) return value;
+        for (Object arg : args) {
+            if (!isOption(arg)) continue;
+            String[] pair = String.valueOf(arg).split("=", 2);
+            if (pair[0].trim().equals(key)) {
+                value = pair[1].trim();
+            }
+        }
+        return value;
+    }
+
+    private static boolean isOption(Object arg) {
+        return arg instanceof String && ((String) arg).indexOf('=') > 0;
+    }
+
+    // ppm of ratio^round for rounds 0..MAX_ROUNDS
+    static int[] geometric(double ratio) {
+        int[] table = new int[MAX_ROUNDS + 1];
+        for (int r = 0; r <= MAX_ROUNDS; r++) {
+            table[r] = (int) Math.round(Math.pow(ratio, r) * PPM);
+        }
+        return table;
+    }
+
+    // ppm of min(1, round / deadline)^(1 / beta) for rounds 0..MAX_ROUNDS
+    static int[] timeDependent(int deadline, double beta) {
+        if (deadline < 1 || beta <= 0) {
+            throw new IllegalArgumentException("deadline must be >= 1 and beta > 0");
+        }
+        int[] table = new int[MAX_ROUNDS + 1];
+        for (int r = 0; r <= MAX_ROUNDS; r++) {
+            table[r] = (int) Math.round(Math.pow(Math.min(1.0, (double) r / deadline), 1.0 / beta) * PPM);
+        }
+        return table;
+    }
+
+    private static int scale(int price, int ppm) {
+        return (int) ((long) price * ppm / PPM);
+    }
+
+    private static int at(int[] table, int round) {
+        return table[Math.min(Math.max(round, 0), MAX_ROUNDS)];
+    }
+
+    /**
+     * Original dealer: 5% off the list price per round, never below 70%
+     * - Asks differ from the old (int) (listPrice * Math.pow(0.95, round)) by at
+     *   most 1 currency unit for list prices up to 2,000,000 (ppm tables are
+     *   rounded to 0.5 ppm, scale() truncates toward zero)
+     */
+    static final class LegacyDealer implements DealerStrategy {
+        private final int[] discount;
+        private final int floorPpm;
+
+        LegacyDealer() {
+            this(0.95, FLOOR_PPM);
+        }
+
+        /**
+         * @param ratio Share of the list price kept per round
+         * @param floorPpm Lowest ask, in ppm of the list price
+         */
+        LegacyDealer(double ratio, int floorPpm) {
+            this.discount = geometric(ratio);
+            this.floorPpm = floorPpm;
+        }
+
+        public int ask(int listPrice, int round, int offer, int previousOffer, int previousAsk) {
+            return bid(listPrice, round);
+        }
+
+        public int bid(int listPrice, int rounds) {
+            return Math.max(scale(listPrice, at(discount, rounds)), scale(listPrice, floorPpm));
+        }
+
+        public String name() {
+            return LEGACY;
+        }
+    }
+
+    /**
+     * Dealer conceding from the list price to its 70% floor by the deadline
+     */
+    static final class TimeDependentDealer implements DealerStrategy {
+        private final int[] concession;	// Share of (list - floor) given up by each round
+
+        TimeDependentDealer(int deadline, double beta) {
+            concession = timeDependent(deadline, beta);
+        }
+
+        public int ask(int listPrice, int round, int offer, int previousOffer, int previousAsk) {
+            return bid(listPrice, round);
+        }
+
+        public int bid(int listPrice, int rounds) {
+            int floor = scale(listPrice, FLOOR_PPM);
+            return listPrice - scale(listPrice - floor, at(concession, rounds));
+        }
+
+        public String name() {
+            return TIME_DEPENDENT;
+        }
+    }
+
+    /**
+     * Dealer matching the buyer's last raise with an equal cut
+     * - Opens at 95% of list; never goes below the 70% floor or back up
+     * - Auction bids follow the legacy schedule (there is no buyer to mirror)
+     */
+    static final class TitForTatDealer implements DealerStrategy {
+        private static final int OPENING_PPM = 950_000;
+        private final LegacyDealer sealed = new LegacyDealer();
+
+        public int ask(int listPrice, int round, int offer, int previousOffer, int previousAsk) {
+            int floor = scale(listPrice, FLOOR_PPM);
+            if (round <= 1) {
+                return Math.max(scale(listPrice, OPENING_PPM), floor);
+            }
+            int raise = Math.max(0, offer - previousOffer);
+            return Math.max(floor, previousAsk - raise);
+        }
+
+        public int bid(int listPrice, int rounds) {
+            return sealed.bid(listPrice, rounds);
+        }
+
+        public String name() {
+            return TIT_FOR_TAT;
+        }
+    }
+
+    /**
+     * Original buyer: bids 97% of an affordable counter until minRounds, then accepts;
+     * splits the difference on counters over budget
+     */
+    static final class LegacyBuyer implements BuyerStrategy {
+        private static final int COUNTER_SHARE_PPM = 970_000;
+        private final int minRounds;
+        private final int counterSharePpm;
+
+        LegacyBuyer(int minRounds) {
+            this(minRounds, COUNTER_SHARE_PPM);
+        }
+
+        /**
+         * @param minRounds Rounds before an affordable counter is accepted
+         * @param counterSharePpm Offer made on an affordable counter before then, in ppm of it
+         */
+        LegacyBuyer(int minRounds, int counterSharePpm) {
+            this.minRounds = minRounds;
+            this.counterSharePpm = counterSharePpm;
+        }
+
+        public int respond(int round, int offer, int counter, int previousCounter, int reservePrice, int ceiling) {
+            if (counter <= reservePrice) {
+                return round < minRounds ? Math.min(scale(counter, counterSharePpm), ceiling) : ACCEPT;
+            }
+            int next = Math.min(offer + (counter - offer) / 2, ceiling);
+            return next >= ceiling ? WALK_AWAY : next;
+        }
+
+        public String name() {
+            return LEGACY;
+        }
+    }
+
+    /**
+     * Buyer raising its offer towards the ceiling so it gets there by the deadline
+     * - Accepts a counter within budget that is no higher than its own next offer,
+     *   or any counter within budget at the deadline
+     */
+    static final class TimeDependentBuyer implements BuyerStrategy {
+        private final int deadline;
+        private final int[] step;	// Share of the remaining gap closed after each round
+
+        TimeDependentBuyer(int deadline, double beta) {
+            this.deadline = deadline;
+            int[] concession = timeDependent(deadline, beta);
+            step = new int[MAX_ROUNDS + 1];
+            for (int r = 1; r <= MAX_ROUNDS; r++) {
+                int left = PPM - concession[r - 1];
+                step[r] = left == 0 ? PPM : (int) ((long) (concession[r] - concession[r - 1]) * PPM / left);
+            }
+        }
+
+        public int respond(int round, int offer, int counter, int previousCounter, int reservePrice, int ceiling) {
+            int next = offer + scale(Math.max(0, ceiling - offer), at(step, round));
+            if (counter <= reservePrice && counter <= Math.max(next, offer)) {
+                return ACCEPT;
+            }
+            if (round >= deadline) {
+                return counter <= reservePrice ? ACCEPT : WALK_AWAY;
+            }
+            if (next >= ceiling) {
+                return offer >= ceiling ? WALK_AWAY : ceiling;
+            }
+            return next;
+        }
+
+        public String name() {
+            return TIME_DEPENDENT;
+        }
+    }
+
+    /**
+     * Buyer matching the dealer's last cut with an equal raise
+     * - Opens by closing 10% of the gap; once the dealer stops conceding it
+     *   accepts if the counter is within budget and walks away otherwise
+     */
+    static final class TitForTatBuyer implements BuyerStrategy {
+        public int respond(int round, int offer, int counter, int previousCounter, int reservePrice, int ceiling) {
+            int cut = round <= 1 ? (counter - offer) / 10 : previousCounter - counter;
+            boolean stalled = round > 1 && cut <= 0;
+            int next = offer + Math.max(0, cut);
+            if (counter <= reservePrice && (counter <= next || stalled || round >= MAX_ROUNDS)) {
+                return ACCEPT;
+            }
+            if (stalled || round >= MAX_ROUNDS) {
+                return WALK_AWAY;
+            }
+            if (next >= ceiling) {
+                return offer >= ceiling ? WALK_AWAY : ceiling;
+            }
+            return next;
+        }
+
+        public String name() {
+            return TIT_FOR_TAT;
+        }
+    }
+}
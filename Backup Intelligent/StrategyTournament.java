@@ -0,0 +1,214 @@
+package IntelligentProject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless strategy tournament
+ * - Plays DealerStrategy against BuyerStrategy in memory with the same round
+ *   protocol as DealerAgent and BuyerAgent (no JADE, no GUI)
+ * - The grid crosses every dealer contender with every buyer contender, covering
+ *   the legacy constants (discount, floor, minRounds, counter share) and the
+ *   time-dependent deadline/beta
+ * - Every pair plays the same seeded scenarios (list price, budget, opening offer),
+ *   and the pairs are spread over a fork/join pool
+ * - Reports per pair: deal rate, mean rounds to a deal and the surplus split
+ *   (buyer: budget - price, dealer: price - the dealer strategy's own floor,
+ *   i.e. its sealed bid after MAX_ROUNDS; both are never negative, so the
+ *   split stays within 0..100%)
+ *
+ * Usage: java IntelligentProject.StrategyTournament [negotiationsPerPair] [seed] [threads]
+ */
+public class StrategyTournament {
+    // One entrant with the label it is reported under
+    private static final class Contender<S> {
+        final String label;
+        final S strategy;
+
+        Contender(String label, S strategy) {
+            this.label = label;
+            this.strategy = strategy;
+        }
+    }
+
+    // Totals for one dealer/buyer pair (written by one task only)
+    private static final class PairResult {
+        long negotiations;
+        long deals;
+        long rounds;			// Summed over deals
+        long buyerSurplus;		// Summed over deals
+        long dealerSurplus;		// Summed over deals
+    }
+
+    public static void main(String[] args) {
+        int perPair = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        List<Contender<DealerStrategy>> dealers = dealers();
+        List<Contender<BuyerStrategy>> buyers = buyers();
+        PairResult[] results = new PairResult[dealers.size() * buyers.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new PairResult();
+        }
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new PairTask(dealers, buyers, results, 0, results.length, perPair, seed));
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = (long) perPair * results.length;
+        System.out.println(String.format("%d pairs x %d negotiations = %d in %.2fs (%.0f/s, %d threads)",
+            results.length, perPair, total, seconds, total / seconds, threads));
+        System.out.println(String.format("%-28s %-28s %7s %7s %7s %7s",
+            "Dealer", "Buyer", "deal%", "rounds", "buyer%", "dealer%"));
+        for (int d = 0; d < dealers.size(); d++) {
+            for (int b = 0; b < buyers.size(); b++) {
+                PairResult r = results[d * buyers.size() + b];
+                long surplus = r.buyerSurplus + r.dealerSurplus;
+                System.out.println(String.format("%-28s %-28s %7.1f %7.2f %7.1f %7.1f",
+                    dealers.get(d).label, buyers.get(b).label,
+                    100.0 * r.deals / Math.max(1, r.negotiations),
+                    r.deals == 0 ? 0.0 : (double) r.rounds / r.deals,
+                    surplus == 0 ? 0.0 : 100.0 * r.buyerSurplus / surplus,
+                    surplus == 0 ? 0.0 : 100.0 * r.dealerSurplus / surplus));
+            }
+        }
+    }
+
+    // Splits the pair range until one pair per task
+    private static final class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Contender<DealerStrategy>> dealers;
+        private final List<Contender<BuyerStrategy>> buyers;
+        private final PairResult[] results;
+        private final int from;
+        private final int to;
+        private final int perPair;
+        private final long seed;
+
+        PairTask(List<Contender<DealerStrategy>> dealers, List<Contender<BuyerStrategy>> buyers,
+                 PairResult[] results, int from, int to, int perPair, long seed) {
+            this.dealers = dealers;
+            this.buyers = buyers;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.perPair = perPair;
+            this.seed = seed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                play(dealers.get(from / buyers.size()).strategy, buyers.get(from % buyers.size()).strategy,
+                    perPair, seed, results[from]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PairTask(dealers, buyers, results, from, mid, perPair, seed),
+                      new PairTask(dealers, buyers, results, mid, to, perPair, seed));
+        }
+    }
+
+    // Plays one pair over the seeded scenarios
+    private static void play(DealerStrategy dealer, BuyerStrategy buyer, int negotiations, long seed, PairResult result) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int n = 0; n < negotiations; n++) {
+            int listPrice = 20_000 + random.nextInt(40_001);
+            int reservePrice = (int) (listPrice * (0.6 + 0.5 * random.nextDouble()));
+            int initialOffer = (int) (reservePrice * (0.6 + 0.3 * random.nextDouble()));
+            negotiate(dealer, buyer, listPrice, initialOffer, reservePrice, result);
+        }
+    }
+
+    /**
+     * One negotiation, round by round as between DealerAgent and BuyerAgent
+     * - The dealer accepts an offer at or above its ask, otherwise counters with it
+     * - The buyer accepts the counter, walks away or makes a new offer
+     */
+    private static void negotiate(DealerStrategy dealer, BuyerStrategy buyer,
+                          int listPrice, int initialOffer, int reservePrice, PairResult result) {
+        result.negotiations++;
+        int floor = dealer.bid(listPrice, Strategies.MAX_ROUNDS);	// Lowest price this dealer ever asks
+        int offer = initialOffer;
+        int previousOffer = 0;
+        int previousAsk = listPrice;
+        int previousCounter = 0;
+        for (int round = 1; round <= Strategies.MAX_ROUNDS; round++) {
+            int ask = dealer.ask(listPrice, round, offer, previousOffer, previousAsk);
+            if (offer >= ask) {
+                deal(result, round, offer, floor, reservePrice);
+                return;
+            }
+            int next = buyer.respond(round, offer, ask, previousCounter, reservePrice, reservePrice);
+            if (next == BuyerStrategy.ACCEPT && ask <= reservePrice) {
+                deal(result, round, ask, floor, reservePrice);
+                return;
+            }
+            if (next < 0) {
+                return;
+            }
+            previousOffer = offer;
+            previousAsk = ask;
+            previousCounter = ask;
+            offer = Math.min(next, reservePrice);
+        }
+    }
+
+    private static void deal(PairResult result, int round, int price, int floor, int reservePrice) {
+        result.deals++;
+        result.rounds += round;
+        result.buyerSurplus += reservePrice - price;
+        result.dealerSurplus += Math.max(0, price - floor);	// Asks never go below the floor
+    }
+
+    private static List<Contender<DealerStrategy>> dealers() {
+        List<Contender<DealerStrategy>> dealers = new ArrayList<>();
+        for (double ratio : new double[] {0.93, 0.95, 0.97}) {
+            for (int floorPpm : new int[] {650_000, 700_000, 750_000}) {
+                dealers.add(new Contender<DealerStrategy>(
+                    String.format("legacy %.2f floor %.2f", ratio, floorPpm / 1e6),
+                    new Strategies.LegacyDealer(ratio, floorPpm)));
+            }
+        }
+        for (int deadline : new int[] {4, 8, 16}) {
+            for (double beta : new double[] {0.5, 1.0, 2.0}) {
+                dealers.add(new Contender<DealerStrategy>(
+                    String.format("time d=%d b=%.1f", deadline, beta),
+                    Strategies.dealer(Strategies.TIME_DEPENDENT, deadline, beta)));
+            }
+        }
+        dealers.add(new Contender<DealerStrategy>(Strategies.TIT_FOR_TAT,
+            Strategies.dealer(Strategies.TIT_FOR_TAT, 0, 0)));
+        return dealers;
+    }
+
+    private static List<Contender<BuyerStrategy>> buyers() {
+        List<Contender<BuyerStrategy>> buyers = new ArrayList<>();
+        for (int minRounds : new int[] {1, 3, 5}) {
+            for (int sharePpm : new int[] {950_000, 970_000}) {
+                buyers.add(new Contender<BuyerStrategy>(
+                    String.format("legacy min=%d share %.2f", minRounds, sharePpm / 1e6),
+                    new Strategies.LegacyBuyer(minRounds, sharePpm)));
+            }
+        }
+        for (int deadline : new int[] {4, 8, 16}) {
+            for (double beta : new double[] {0.5, 1.0, 2.0}) {
+                buyers.add(new Contender<BuyerStrategy>(
+                    String.format("time d=%d b=%.1f", deadline, beta),
+                    Strategies.buyer(Strategies.TIME_DEPENDENT, deadline, beta)));
+            }
+        }
+        buyers.add(new Contender<BuyerStrategy>(Strategies.TIT_FOR_TAT,
+            Strategies.buyer(Strategies.TIT_FOR_TAT, 0, 0)));
+        return buyers;
+    }
+}
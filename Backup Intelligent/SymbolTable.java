@@ -0,0 +1,127 @@
+package IntelligentProject;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning compact int IDs to names (car types, agents)
+ * - Names are trimmed once when interned; IDs are dense and start at 0
+ * - Case-insensitive tables treat "Toyota" and "toyota" as one symbol
+ * - Lookups do not allocate, so hot paths can compare IDs instead of strings
+ * - Open addressing over an int[] of IDs plus the String[] of names: about
+ *   12 bytes per symbol besides the names, with no entry or boxed objects
+ * - Thread-safe (methods synchronize on the table)
+ */
+public class SymbolTable {
+    public static final int UNKNOWN = -1;	// Returned by lookup() for unseen names
+
+    private final boolean caseInsensitive;
+    private String[] names = new String[16];	// ID -> first registered spelling
+    private int[] slots = new int[32];			// Hash slot -> ID (UNKNOWN = free), at most 3/4 full
+    private int size = 0;
+
+    /**
+     * @param caseInsensitive True to fold casing (car types), false for exact names
+     */
+    public SymbolTable(boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+        Arrays.fill(slots, UNKNOWN);
+    }
+
+    /**
+     * Car type dictionary shared by all broker matching paths
+     */
+    public static SymbolTable forCarTypes() {
+        return new SymbolTable(true);
+    }
+
+    /**
+     * Returns the ID for a name, registering it if unseen
+     * @param name Raw name from a message
+     * @return Stable symbol ID
+     */
+    public synchronized int intern(String name) {
+        String key = name.trim();
+        int slot = find(key);
+        if (slots[slot] != UNKNOWN) {
+            return slots[slot];
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size + (size >> 1));
+        }
+        int id = size++;
+        names[id] = key;
+        slots[slot] = id;
+        if (size * 4L > slots.length * 3L) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID for a name without registering it
+     * @param name Raw name from a message
+     * @return Symbol ID or UNKNOWN
+     */
+    public synchronized int lookup(String name) {
+        return slots[find(name.trim())];
+    }
+
+    /**
+     * @param id Symbol ID
+     * @return Name as first registered
+     */
+    public synchronized String nameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Symbol " + id + " of " + size);
+        }
+        return names[id];
+    }
+
+    /**
+     * @return Number of registered symbols
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    // Slot holding the name's ID, or the free slot where it would go
+    private int find(String key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != UNKNOWN && !matches(names[slots[slot]], key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(String name, String key) {
+        return caseInsensitive ? name.equalsIgnoreCase(key) : name.equals(key);
+    }
+
+    // Case-insensitive tables fold each char the way equalsIgnoreCase() compares it
+    private int hash(String key) {
+        int h;
+        if (caseInsensitive) {
+            h = 0;
+            for (int i = 0; i < key.length(); i++) {
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+            }
+        } else {
+            h = key.hashCode();
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, UNKNOWN);
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(names[id]) & mask;
+            while (slots[slot] != UNKNOWN) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+}